@@ -2,6 +2,7 @@ package com.example.worldmanager;
 
 import com.example.velocityplugin.FreestylePlugin;
 import com.example.velocityplugin.vm.FreestyleVMManager;
+import com.example.velocityplugin.vm.OperationScheduler;
 import com.example.velocityplugin.vm.ServerInstance;
 import com.google.inject.Inject;
 import com.mojang.brigadier.Command;
@@ -21,7 +22,10 @@ import net.kyori.adventure.text.format.NamedTextColor;
 import org.slf4j.Logger;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -29,6 +33,7 @@ import java.util.Map;
  * Provides just two commands:
  * - /server create <name> - Creates a new Minecraft server using Freestyle VMs
  * - /server connect <name> - Connects player to the server
+ * - /server list [after] - Lists servers by name, a page at a time
  */
 @Plugin(
     id = "simple-server-manager",
@@ -39,9 +44,11 @@ import java.util.Map;
 )
 public class SimpleServerManager {
 
+    private static final int LIST_PAGE_SIZE = 20;
+
     private final ProxyServer proxy;
     private final Logger logger;
-    private final Map<String, ServerInstance> servers = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, ServerInstance> servers = new ConcurrentSkipListMap<>();
 
     @Inject
     public SimpleServerManager(ProxyServer proxy, Logger logger) {
@@ -78,9 +85,15 @@ public class SimpleServerManager {
                     )
                     .then(LiteralArgumentBuilder.<CommandSource>literal("list")
                         .executes(context -> {
-                            listServers(context.getSource());
+                            listServers(context.getSource(), null);
                             return Command.SINGLE_SUCCESS;
                         })
+                        .then(RequiredArgumentBuilder.<CommandSource, String>argument("after", StringArgumentType.word())
+                            .executes(context -> {
+                                listServers(context.getSource(), context.getArgument("after", String.class));
+                                return Command.SINGLE_SUCCESS;
+                            })
+                        )
                     )
             )
         );
@@ -91,29 +104,32 @@ public class SimpleServerManager {
     private void createServer(CommandSource source, String serverName) {
         source.sendMessage(Component.text("Creating server: " + serverName + "...", NamedTextColor.YELLOW));
         
-        CompletableFuture.runAsync(() -> {
-            try {
-                FreestyleVMManager vmManager = FreestylePlugin.getVMManager();
-                if (vmManager == null) {
-                    source.sendMessage(Component.text("Freestyle plugin not available! Check API key configuration.", NamedTextColor.RED));
-                    return;
-                }
-                
-                // Create the server using Freestyle VMs
-                ServerInstance server = vmManager.createServer(serverName);
-                servers.put(serverName, server);
-                
-                // Register with Velocity proxy so players can connect
-                ServerInfo serverInfo = new ServerInfo(serverName, server.getAddress());
-                proxy.registerServer(serverInfo);
-                
-                source.sendMessage(Component.text("✓ Server created: " + serverName + " at " + server.getAddress(), NamedTextColor.GREEN));
-                source.sendMessage(Component.text("Use /server connect " + serverName + " to join!", NamedTextColor.AQUA));
-                
-            } catch (Exception e) {
-                logger.error("Failed to create server: " + serverName, e);
-                source.sendMessage(Component.text("Failed to create server: " + e.getMessage(), NamedTextColor.RED));
+        FreestyleVMManager vmManager = FreestylePlugin.getVMManager();
+        if (vmManager == null) {
+            source.sendMessage(Component.text("Freestyle plugin not available! Check API key configuration.", NamedTextColor.RED));
+            return;
+        }
+        
+        // Create the server using Freestyle VMs without blocking a pool thread on the API call,
+        // scheduled as user work so it cannot hold up players waiting on a resume
+        CompletableFuture<ServerInstance> creation = vmManager.getScheduler().submit(OperationScheduler.Priority.USER,
+            () -> vmManager.createServerAsync(serverName, FreestyleVMManager.DEFAULT_TEMPLATE));
+        creation.whenComplete((server, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.error("Failed to create server: " + serverName, cause);
+                source.sendMessage(Component.text("Failed to create server: " + cause.getMessage(), NamedTextColor.RED));
+                return;
             }
+            
+            servers.put(serverName, server);
+            
+            // Register with Velocity proxy so players can connect
+            ServerInfo serverInfo = new ServerInfo(serverName, server.getAddress());
+            proxy.registerServer(serverInfo);
+            
+            source.sendMessage(Component.text("✓ Server created: " + serverName + " at " + describe(server), NamedTextColor.GREEN));
+            source.sendMessage(Component.text("Use /server connect " + serverName + " to join!", NamedTextColor.AQUA));
         });
     }
 
@@ -139,15 +155,35 @@ public class SimpleServerManager {
         );
     }
 
-    private void listServers(CommandSource source) {
+    /**
+     * Show one page of servers in name order, starting after the given name.
+     */
+    private void listServers(CommandSource source, String after) {
         if (servers.isEmpty()) {
             source.sendMessage(Component.text("No servers created yet. Use /server create <name>", NamedTextColor.YELLOW));
             return;
         }
         
-        source.sendMessage(Component.text("Available servers:", NamedTextColor.AQUA));
-        servers.forEach((name, server) -> {
-            source.sendMessage(Component.text("  • " + name + " - " + server.getAddress(), NamedTextColor.WHITE));
-        });
+        Map<String, ServerInstance> page = after == null ? servers : servers.tailMap(after, false);
+        Iterator<Map.Entry<String, ServerInstance>> entries = page.entrySet().iterator();
+        source.sendMessage(Component.text(after == null ? "Available servers:" : "Available servers after " + after + ":", NamedTextColor.AQUA));
+        String last = null;
+        for (int shown = 0; shown < LIST_PAGE_SIZE && entries.hasNext(); shown++) {
+            Map.Entry<String, ServerInstance> entry = entries.next();
+            last = entry.getKey();
+            source.sendMessage(Component.text("  • " + last + " - " + describe(entry.getValue()), NamedTextColor.WHITE));
+        }
+        if (last == null) {
+            source.sendMessage(Component.text("  (none)", NamedTextColor.GRAY));
+        } else if (entries.hasNext()) {
+            source.sendMessage(Component.text("More: /server list " + last, NamedTextColor.YELLOW));
+        }
+    }
+
+    /**
+     * host:port of a server; VM addresses are unresolved, so toString() would add "/<unresolved>".
+     */
+    private static String describe(ServerInstance server) {
+        return server.getAddress().getHostString() + ":" + server.getAddress().getPort();
     }
-}
\ No newline at end of file
+}
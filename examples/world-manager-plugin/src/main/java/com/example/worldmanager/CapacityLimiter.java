@@ -0,0 +1,211 @@
+package com.example.worldmanager;
+
+import com.example.velocityplugin.metrics.OperationMetrics;
+import com.example.velocityplugin.metrics.VmMetrics;
+import com.example.velocityplugin.vm.OperationScheduler.Priority;
+import org.slf4j.Logger;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many worlds run at once, treating the running worlds like a cache.
+ *
+ * Creates, forks and resumes ask for admission before they start a VM. While
+ * fewer than capacity.maxRunning worlds are running, being suspended or being
+ * started, admission is immediate. At the cap, the least recently used running
+ * world with no players is suspended first, and the operation goes ahead once
+ * that world is down. A world counts as used when a player joins or leaves it
+ * and when it starts. Pinned worlds, from capacity.pinned or {@link #pin}, are
+ * never suspended to make room; if every running world is pinned or has
+ * players, the operation fails.
+ *
+ * The victim is chosen and the slot reserved under the limiter's lock, but
+ * the suspend is started after leaving it. Until that suspend settles the
+ * victim is marked as being evicted, so concurrent admissions each pick a
+ * different world.
+ *
+ * Only managed worlds count, since servers from velocity.toml are not VMs.
+ * Admissions are timed as the world_admission operation, with outcomes
+ * admitted, evicted (admitted after suspending a world) and rejected.
+ */
+public class CapacityLimiter {
+
+    private static final Runnable NOTHING_TO_RELEASE = () -> { };
+
+    private final WorldManager worldManager;
+    private final WorldOccupancy occupancy;
+    private final Logger logger;
+    private final int maxRunning;
+    private final Set<String> pinned = ConcurrentHashMap.newKeySet();
+    private final Set<String> evicting = new HashSet<>();
+    private final OperationMetrics admissions;
+    private final LongAdder evictions = new LongAdder();
+    private int reserved;
+
+    public CapacityLimiter(WorldManager worldManager, WorldOccupancy occupancy, WorldManagerConfig config, Logger logger) {
+        this.worldManager = worldManager;
+        this.occupancy = occupancy;
+        this.logger = logger;
+        this.maxRunning = config.getCapacityMaxRunning();
+        this.pinned.addAll(config.getCapacityPinnedWorlds());
+
+        VmMetrics metrics = worldManager.getVMManager().getMetrics();
+        this.admissions = metrics.operation("world_admission");
+        metrics.register("world_capacity_max_running", "Cap on running worlds, 0 if there is none",
+            VmMetrics.Kind.GAUGE, () -> maxRunning);
+        metrics.register("world_capacity_running", "Managed worlds running, being suspended or being started",
+            VmMetrics.Kind.GAUGE, this::getOccupied);
+        metrics.register("world_capacity_evictions_total", "Idle worlds suspended to make room for another",
+            VmMetrics.Kind.COUNTER, evictions::sum);
+    }
+
+    public boolean isEnabled() {
+        return maxRunning > 0;
+    }
+
+    public int getMaxRunning() {
+        return maxRunning;
+    }
+
+    /**
+     * Keep a world from being suspended to make room, until it is unpinned.
+     */
+    public void pin(String worldName) {
+        pinned.add(worldName);
+    }
+
+    public void unpin(String worldName) {
+        pinned.remove(worldName);
+    }
+
+    public boolean isPinned(String worldName) {
+        return pinned.contains(worldName);
+    }
+
+    /**
+     * Managed worlds that hold a VM slot: running, being suspended, or admitted and starting.
+     */
+    public synchronized int getOccupied() {
+        return countRunning() + reserved;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Wait for room to start a world. Completes with the action that gives the slot
+     * back, to be run once the operation has settled either way, or fails if there
+     * is no room and no world can be suspended to make some.
+     *
+     * @param priority the priority of the suspend that makes room, usually that of the operation itself
+     */
+    public CompletableFuture<Runnable> admit(String worldName, Priority priority) {
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(NOTHING_TO_RELEASE);
+        }
+
+        long start = admissions.begin();
+        WorldInfo victim;
+        synchronized (this) {
+            int occupied = countRunning() + reserved;
+            // Claim the slot now, so concurrent admissions each make room for themselves
+            reserved++;
+            if (occupied < maxRunning) {
+                admissions.end(start, "admitted");
+                return CompletableFuture.completedFuture(releaser());
+            }
+
+            victim = leastRecentlyUsed(worldName);
+            if (victim == null) {
+                reserved--;
+                admissions.end(start, "rejected");
+                return CompletableFuture.failedFuture(new IllegalStateException("Cannot start world " + worldName
+                    + ": " + occupied + " of " + maxRunning + " worlds are running and none of them is idle"));
+            }
+            evicting.add(victim.getName());
+        }
+
+        logger.info("{} worlds running, suspending idle world {} to make room for {}",
+            maxRunning, victim.getName(), worldName);
+        CompletableFuture<Void> suspend;
+        try {
+            suspend = worldManager.suspendWorld(victim.getName(), priority);
+        } catch (RuntimeException e) {
+            suspend = CompletableFuture.failedFuture(e);
+        }
+        return suspend
+            .whenComplete((ignored, e) -> doneEvicting(victim.getName()))
+            .handle((ignored, e) -> {
+                if (e != null) {
+                    release();
+                    admissions.end(start, "rejected");
+                    throw new CompletionException(new IllegalStateException("Cannot start world " + worldName
+                        + ": suspending " + victim.getName() + " to make room failed", e));
+                }
+                evictions.increment();
+                admissions.end(start, "evicted");
+                return releaser();
+            });
+    }
+
+    private Runnable releaser() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        };
+    }
+
+    private synchronized void release() {
+        reserved--;
+    }
+
+    private synchronized void doneEvicting(String worldName) {
+        evicting.remove(worldName);
+    }
+
+    private int countRunning() {
+        int running = 0;
+        WorldCatalog catalog = worldManager.getCatalog();
+        for (WorldInfo.Status status : new WorldInfo.Status[] {WorldInfo.Status.RUNNING, WorldInfo.Status.SUSPENDING}) {
+            for (WorldInfo world : catalog.matching(WorldCatalog.Query.all().withStatus(status))) {
+                if (world.isManaged()) {
+                    running++;
+                }
+            }
+        }
+        return running;
+    }
+
+    /**
+     * The running world without players that was used longest ago and is not already
+     * being evicted, or null if there is none. Called with the lock held.
+     */
+    private WorldInfo leastRecentlyUsed(String admitting) {
+        WorldInfo oldest = null;
+        Instant oldestUse = null;
+        for (WorldInfo world : worldManager.getCatalog().matching(WorldCatalog.Query.all().withStatus(WorldInfo.Status.RUNNING))) {
+            String name = world.getName();
+            if (!world.isManaged() || name.equals(admitting) || pinned.contains(name) || evicting.contains(name)
+                    || occupancy.getPlayerCount(name) > 0) {
+                continue;
+            }
+            Instant lastUse = world.getLastActiveAt().isAfter(world.getStatusChangedAt())
+                ? world.getLastActiveAt() : world.getStatusChangedAt();
+            if (oldestUse == null || lastUse.isBefore(oldestUse)) {
+                oldest = world;
+                oldestUse = lastUse;
+            }
+        }
+        return oldest;
+    }
+}
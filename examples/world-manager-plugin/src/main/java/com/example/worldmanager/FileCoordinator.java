@@ -0,0 +1,327 @@
+package com.example.worldmanager;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link WorldCoordinator} for proxies that share a directory, e.g. on a
+ * network file system.
+ *
+ * Every write happens under an exclusive lock on coordination.lock in that
+ * directory. Each world's lease is a small properties file under leases/ with
+ * its holder, token and expiry. Published changes are appended to changes.log,
+ * which every proxy polls from where it last read, so a change reaches the
+ * others within one poll interval. A proxy that starts replays the log first.
+ *
+ * Log layout: int magic, long generation, then records of int length, int
+ * crc32(payload), payload. Once the log passes a few megabytes it is rewritten
+ * with only the last change per world under the next generation; readers that
+ * see a new generation read it again from the start, which is harmless since
+ * applying a change twice has no further effect.
+ */
+public class FileCoordinator implements WorldCoordinator {
+
+    private static final int MAGIC = 0x46574343; // "FWCC"
+    private static final int HEADER_BYTES = 12;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final long COMPACT_BYTES = 4L * 1024 * 1024;
+
+    // A FileLock only excludes other processes, so coordinators in one JVM also share a monitor
+    private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path leases;
+    private final Path lockFile;
+    private final Path log;
+    private final String nodeId;
+    private final Duration pollInterval;
+    private final Logger logger;
+    private final ScheduledExecutorService poller;
+    private volatile Consumer<WorldChange> listener;
+    private long generation = -1;
+    private long readPosition;
+
+    public FileCoordinator(Path directory, String nodeId, Duration pollInterval, Logger logger) throws IOException {
+        this.leases = directory.resolve("leases");
+        this.lockFile = directory.resolve("coordination.lock").toAbsolutePath().normalize();
+        this.log = directory.resolve("changes.log");
+        this.nodeId = nodeId;
+        this.pollInterval = pollInterval;
+        this.logger = logger;
+        Files.createDirectories(leases);
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "world-coordinator-poll");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Optional<Lease> tryAcquire(String worldName, Duration ttl) {
+        Path file = leaseFile(worldName);
+        return locked("take the lease on " + worldName, () -> {
+            Properties held = readLease(file);
+            Instant now = Instant.now();
+            if (Long.parseLong(held.getProperty("expiresAt", "0")) > now.toEpochMilli()) {
+                return Optional.empty();
+            }
+            Lease lease = new Lease(worldName, nodeId, Long.parseLong(held.getProperty("token", "0")) + 1, now.plus(ttl));
+            writeLease(file, lease.getOwner(), lease.getToken(), lease.getExpiresAt().toEpochMilli());
+            return Optional.of(lease);
+        });
+    }
+
+    @Override
+    public boolean renew(Lease lease, Duration ttl) {
+        Path file = leaseFile(lease.getWorldName());
+        return locked("renew the lease on " + lease.getWorldName(), () -> {
+            Properties held = readLease(file);
+            // A released lease keeps its token but has no expiry
+            if (!String.valueOf(lease.getToken()).equals(held.getProperty("token"))
+                    || !nodeId.equals(held.getProperty("owner")) || "0".equals(held.getProperty("expiresAt", "0"))) {
+                return false;
+            }
+            writeLease(file, nodeId, lease.getToken(), Instant.now().plus(ttl).toEpochMilli());
+            return true;
+        });
+    }
+
+    @Override
+    public void release(Lease lease) {
+        Path file = leaseFile(lease.getWorldName());
+        try {
+            locked("release the lease on " + lease.getWorldName(), () -> {
+                Properties held = readLease(file);
+                // Keep the token, so the next lease on this world gets a higher one
+                if (String.valueOf(lease.getToken()).equals(held.getProperty("token"))) {
+                    writeLease(file, lease.getOwner(), lease.getToken(), 0);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("{}, it will expire at {}", e.getMessage(), lease.getExpiresAt());
+        }
+    }
+
+    @Override
+    public void publish(WorldChange change) {
+        byte[] payload = change.encode();
+        locked("publish the " + change, () -> {
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                if (channel.size() < HEADER_BYTES) {
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(0).flip(), 0);
+                }
+                channel.write(record(payload), channel.size());
+                channel.force(false);
+                if (channel.size() > COMPACT_BYTES) {
+                    compact(channel);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void setListener(Consumer<WorldChange> listener) {
+        boolean first = this.listener == null;
+        this.listener = listener;
+        if (first) {
+            poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Read the log up to its end on the calling thread. A change published before
+     * the caller took its lease is in the log by then, since publishing happens
+     * before the lease is given back.
+     */
+    @Override
+    public void catchUp() {
+        if (listener != null) {
+            poll();
+        }
+    }
+
+    @Override
+    public void close() {
+        poller.shutdown();
+    }
+
+    /**
+     * Deliver the changes appended since the last poll, on the poller thread or a
+     * thread catching up, one at a time.
+     */
+    private synchronized void poll() {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                logger.warn("{} is not a world change log, ignoring it", log);
+                return;
+            }
+            long current = header.getLong();
+            if (current != generation) {
+                generation = current;
+                readPosition = HEADER_BYTES;
+            }
+
+            ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            while (readPosition + RECORD_HEADER_BYTES <= size) {
+                recordHeader.clear();
+                channel.read(recordHeader, readPosition);
+                recordHeader.flip();
+                int length = recordHeader.getInt();
+                int checksum = recordHeader.getInt();
+                if (length <= 0 || readPosition + RECORD_HEADER_BYTES + length > size) {
+                    return; // Still being written, read it next time
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                channel.read(payload, readPosition + RECORD_HEADER_BYTES);
+                crc.reset();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                readPosition += RECORD_HEADER_BYTES + length;
+
+                WorldChange change = WorldChange.decode(payload.array());
+                if (!change.getOrigin().equals(nodeId)) {
+                    listener.accept(change);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing published yet
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read world changes from {}: {}", log, e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite the log with the last change per world, under the next generation.
+     * Called with the lock held.
+     */
+    private void compact(FileChannel channel) throws IOException {
+        ByteBuffer all = ByteBuffer.allocate((int) channel.size());
+        channel.read(all, 0);
+        all.flip();
+        all.getInt();
+        long current = all.getLong();
+
+        Map<String, byte[]> latest = new LinkedHashMap<>();
+        while (all.remaining() >= RECORD_HEADER_BYTES) {
+            int length = all.getInt();
+            all.getInt();
+            if (length <= 0 || length > all.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            all.get(payload);
+            String worldName = WorldChange.decode(payload).getWorldName();
+            latest.remove(worldName);
+            latest.put(worldName, payload);
+        }
+
+        Path compacted = log.resolveSibling(log.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(current + 1).flip());
+            for (byte[] payload : latest.values()) {
+                out.write(record(payload));
+            }
+            out.force(false);
+        }
+        Files.move(compacted, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Compacted world change log {} to {} worlds", log, latest.size());
+    }
+
+    private static ByteBuffer record(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length)
+            .putInt(payload.length)
+            .putInt((int) crc.getValue())
+            .put(payload)
+            .flip();
+    }
+
+    private Path leaseFile(String worldName) {
+        return leases.resolve(URLEncoder.encode(worldName, StandardCharsets.UTF_8) + ".lease");
+    }
+
+    private static Properties readLease(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            // Never leased
+        }
+        return properties;
+    }
+
+    private static void writeLease(Path file, String owner, long token, long expiresAt) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("owner", owner);
+        properties.setProperty("token", String.valueOf(token));
+        properties.setProperty("expiresAt", String.valueOf(expiresAt));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Run an action holding both the JVM-wide monitor and the file lock for the directory.
+     */
+    private <T> T locked(String what, LockedAction<T> action) {
+        synchronized (JVM_LOCKS.computeIfAbsent(lockFile, path -> new Object())) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                return action.run();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to " + what + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.worldmanager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The result of {@link WorldManager#forkWorldBatch}: one future per requested
+ * world, in order, plus an aggregate that completes once every fork has
+ * either been registered or failed.
+ */
+public class ForkBatch {
+
+    private final List<String> names;
+    private final List<CompletableFuture<WorldInfo>> forks;
+    private final CompletableFuture<Result> result;
+
+    ForkBatch(List<String> names, List<CompletableFuture<WorldInfo>> forks, CompletableFuture<Result> result) {
+        this.names = Collections.unmodifiableList(names);
+        this.forks = Collections.unmodifiableList(forks);
+        this.result = result;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Futures for each world, in the same order as {@link #getNames()}.
+     */
+    public List<CompletableFuture<WorldInfo>> getForks() {
+        return forks;
+    }
+
+    /**
+     * Completes (never exceptionally) when the whole batch has settled.
+     */
+    public CompletableFuture<Result> getResult() {
+        return result;
+    }
+
+    /**
+     * Outcome of a batch: the worlds that were created and why the others were not.
+     */
+    public static class Result {
+        private final Map<String, WorldInfo> created;
+        private final Map<String, Throwable> failed;
+
+        Result(Map<String, WorldInfo> created, Map<String, Throwable> failed) {
+            this.created = Collections.unmodifiableMap(new LinkedHashMap<>(created));
+            this.failed = Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+        }
+
+        public Map<String, WorldInfo> getCreated() {
+            return created;
+        }
+
+        public Map<String, Throwable> getFailed() {
+            return failed;
+        }
+
+        public boolean isComplete() {
+            return failed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return created.size() + " created, " + failed.size() + " failed";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.worldmanager;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suspends worlds that have been empty for the idle grace period.
+ *
+ * Two rules keep worlds that players bounce in and out of from thrashing:
+ * a world must have been running for the minimum uptime before it can be
+ * suspended, and a world that gets resumed within one grace period of being
+ * suspended has its grace period doubled (up to 8x) until it stays quiet again.
+ */
+public class IdleSuspendScheduler {
+
+    private static final int MAX_GRACE_MULTIPLIER = 8;
+
+    private final WorldManager worldManager;
+    private final WorldOccupancy occupancy;
+    private final Logger logger;
+    private final Duration idleGrace;
+    private final Duration minUptime;
+    private final Set<String> exemptWorlds = new HashSet<>();
+    private final Map<String, Instant> suspendedAt = new ConcurrentHashMap<>();
+    private final Map<String, Integer> graceMultipliers = new ConcurrentHashMap<>();
+
+    public IdleSuspendScheduler(ProxyServer server, WorldManager worldManager, WorldOccupancy occupancy,
+                                WorldManagerConfig config, Logger logger) {
+        this.worldManager = worldManager;
+        this.occupancy = occupancy;
+        this.logger = logger;
+        this.idleGrace = config.getIdleGrace();
+        this.minUptime = config.getMinUptime();
+
+        // Never suspend the servers players are sent to on login
+        exemptWorlds.addAll(server.getConfiguration().getAttemptConnectionOrder());
+        exemptWorlds.addAll(config.getIdleExemptWorlds());
+    }
+
+    /**
+     * Check every running world and suspend the ones that have been idle long enough.
+     * Runs periodically on the proxy scheduler.
+     */
+    public void tick() {
+        Instant now = Instant.now();
+
+        WorldCatalog.Query running = WorldCatalog.Query.all().withStatus(WorldInfo.Status.RUNNING);
+        for (WorldInfo world : worldManager.getCatalog().matching(running)) {
+            String name = world.getName();
+            // Servers from velocity.toml are not VMs this plugin can suspend
+            if (world.getStatus() != WorldInfo.Status.RUNNING || !world.isManaged() || exemptWorlds.contains(name)) {
+                continue;
+            }
+
+            Instant runningSince = world.getStatusChangedAt();
+            updateGraceMultiplier(name, runningSince);
+
+            if (occupancy.getPlayerCount(name) > 0) {
+                continue;
+            }
+
+            // A world nobody has joined since it started counts as idle from when it started
+            Instant emptySince = occupancy.getEmptySince(name);
+            Instant idleFrom = emptySince == null || emptySince.isBefore(runningSince) ? runningSince : emptySince;
+            Duration grace = idleGrace.multipliedBy(graceMultipliers.getOrDefault(name, 1));
+
+            if (Duration.between(idleFrom, now).compareTo(grace) < 0
+                    || Duration.between(runningSince, now).compareTo(minUptime) < 0) {
+                continue;
+            }
+
+            suspend(name, Duration.between(idleFrom, now));
+        }
+    }
+
+    private void suspend(String name, Duration idleFor) {
+        logger.info("World {} idle for {}s, suspending", name, idleFor.getSeconds());
+        worldManager.suspendWorld(name).whenComplete((ignored, error) -> {
+            if (error == null) {
+                suspendedAt.put(name, Instant.now());
+            } else {
+                logger.warn("Idle suspend of {} failed: {}", name, error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Worlds resumed shortly after an idle suspend get a longer grace period next time;
+     * worlds that stayed suspended for at least a grace period go back to the base period.
+     */
+    private void updateGraceMultiplier(String name, Instant runningSince) {
+        Instant lastSuspend = suspendedAt.remove(name);
+        if (lastSuspend == null) {
+            return;
+        }
+
+        if (Duration.between(lastSuspend, runningSince).compareTo(idleGrace) < 0) {
+            int multiplier = graceMultipliers.merge(name, 2, (current, ignored) -> Math.min(current * 2, MAX_GRACE_MULTIPLIER));
+            logger.info("World {} resumed soon after being suspended, idle grace now {}x", name, multiplier);
+        } else {
+            graceMultipliers.remove(name);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.worldmanager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * A {@link WorldCoordinator} whose cluster lives in one JVM: a single proxy on
+ * its own, or several world managers side by side in tests and benchmarks.
+ *
+ * Nodes that join the same {@link Cluster} share its leases and receive each
+ * other's changes. Changes are encoded and decoded on the way, as they would
+ * be between processes, and delivered on a thread per node.
+ */
+public class InProcessCoordinator implements WorldCoordinator {
+
+    private final Cluster cluster;
+    private final String nodeId;
+    private final ExecutorService delivery;
+    private volatile Consumer<WorldChange> listener;
+    private volatile Thread deliveryThread;
+
+    private InProcessCoordinator(Cluster cluster, String nodeId) {
+        this.cluster = cluster;
+        this.nodeId = nodeId;
+        this.delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "world-coordinator-" + nodeId);
+            thread.setDaemon(true);
+            deliveryThread = thread;
+            return thread;
+        });
+    }
+
+    /**
+     * A cluster of one, for a proxy that shares its worlds with nobody.
+     */
+    public static InProcessCoordinator standalone() {
+        return new Cluster().join("local");
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Optional<Lease> tryAcquire(String worldName, Duration ttl) {
+        Instant now = Instant.now();
+        synchronized (cluster) {
+            Lease held = cluster.leases.get(worldName);
+            if (held != null && held.getExpiresAt().isAfter(now)) {
+                return Optional.empty();
+            }
+            long token = (held == null ? cluster.tokens.getOrDefault(worldName, 0L) : held.getToken()) + 1;
+            Lease lease = new Lease(worldName, nodeId, token, now.plus(ttl));
+            cluster.leases.put(worldName, lease);
+            cluster.tokens.put(worldName, token);
+            return Optional.of(lease);
+        }
+    }
+
+    @Override
+    public boolean renew(Lease lease, Duration ttl) {
+        synchronized (cluster) {
+            Lease held = cluster.leases.get(lease.getWorldName());
+            if (held == null || held.getToken() != lease.getToken()) {
+                return false;
+            }
+            cluster.leases.put(lease.getWorldName(),
+                new Lease(lease.getWorldName(), nodeId, lease.getToken(), Instant.now().plus(ttl)));
+            return true;
+        }
+    }
+
+    @Override
+    public void release(Lease lease) {
+        synchronized (cluster) {
+            Lease held = cluster.leases.get(lease.getWorldName());
+            if (held != null && held.getToken() == lease.getToken()) {
+                cluster.leases.remove(lease.getWorldName());
+            }
+        }
+    }
+
+    @Override
+    public void publish(WorldChange change) {
+        byte[] encoded = change.encode();
+        for (InProcessCoordinator node : cluster.nodes) {
+            if (node != this) {
+                node.deliver(encoded);
+            }
+        }
+    }
+
+    @Override
+    public void setListener(Consumer<WorldChange> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Wait until the changes queued for this node so far have been delivered. Changes
+     * are queued as they are published, so that is all of them.
+     */
+    @Override
+    public void catchUp() {
+        // On the delivery thread, everything before the current change has been delivered
+        if (listener == null || Thread.currentThread() == deliveryThread) {
+            return;
+        }
+        try {
+            delivery.submit(() -> { }).get();
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while catching up on world changes", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to catch up on world changes", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        cluster.nodes.remove(this);
+        synchronized (cluster) {
+            cluster.leases.values().removeIf(lease -> lease.getOwner().equals(nodeId));
+        }
+        delivery.shutdown();
+    }
+
+    private void deliver(byte[] encoded) {
+        try {
+            delivery.execute(() -> {
+                Consumer<WorldChange> current = listener;
+                if (current != null) {
+                    current.accept(WorldChange.decode(encoded));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile
+        }
+    }
+
+    /**
+     * Leases and members shared by the nodes of one in-process cluster.
+     */
+    public static final class Cluster {
+        private final Map<String, Lease> leases = new HashMap<>();
+        private final Map<String, Long> tokens = new HashMap<>();
+        private final List<InProcessCoordinator> nodes = new CopyOnWriteArrayList<>();
+
+        public InProcessCoordinator join(String nodeId) {
+            InProcessCoordinator node = new InProcessCoordinator(this, nodeId);
+            nodes.add(node);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.worldmanager;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
+import com.velocitypowered.api.event.player.PlayerChooseInitialServerEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends returning players straight back to the world they were last on.
+ *
+ * The world is resumed as soon as the player has logged in, so waking it
+ * overlaps with the rest of the login. When the proxy picks the initial
+ * server, the player is routed to that world if it is up within
+ * login.waitSeconds; otherwise they land on the default server as usual and
+ * are moved over once the world is ready.
+ *
+ * Shard replicas are remembered as their world, so the join is balanced again.
+ * Servers that are not VM-backed worlds (e.g. the lobby) are not remembered.
+ */
+public class LastWorldRouter {
+
+    private final ProxyServer server;
+    private final WorldManager worldManager;
+    private final LastWorldStore store;
+    private final Logger logger;
+    private final Duration waitTimeout;
+    private final Map<UUID, CompletableFuture<Void>> pendingResumes = new ConcurrentHashMap<>();
+
+    public LastWorldRouter(ProxyServer server, WorldManager worldManager, LastWorldStore store,
+                           WorldManagerConfig config, Logger logger) {
+        this.server = server;
+        this.worldManager = worldManager;
+        this.store = store;
+        this.logger = logger;
+        this.waitTimeout = config.getLoginWaitTimeout();
+    }
+
+    @Subscribe
+    public void onServerConnected(ServerConnectedEvent event) {
+        worldManager.getWorld(event.getServer().getServerInfo().getName())
+            .filter(WorldInfo::isManaged)
+            .map(world -> ShardManager.isReplica(world) ? world.getParentWorld() : world.getName())
+            .ifPresent(worldName -> store.put(event.getPlayer().getUniqueId(), worldName));
+    }
+
+    @Subscribe
+    public void onPostLogin(PostLoginEvent event) {
+        Player player = event.getPlayer();
+        Optional<WorldInfo> lastWorld = lastWorld(player);
+        if (lastWorld.isEmpty() || !worldManager.isWorldSuspended(lastWorld.get().getName())) {
+            return;
+        }
+
+        String worldName = lastWorld.get().getName();
+        logger.info("Resuming {} ahead of {} joining", worldName, player.getUsername());
+        pendingResumes.put(player.getUniqueId(), worldManager.resumeWorld(worldName));
+    }
+
+    @Subscribe
+    public EventTask onChooseInitialServer(PlayerChooseInitialServerEvent event) {
+        Player player = event.getPlayer();
+        CompletableFuture<Void> resume = pendingResumes.remove(player.getUniqueId());
+        Optional<WorldInfo> lastWorld = lastWorld(player);
+        if (lastWorld.isEmpty()) {
+            return null;
+        }
+
+        String worldName = lastWorld.get().getName();
+        if (resume == null) {
+            if (lastWorld.get().getStatus() == WorldInfo.Status.RUNNING) {
+                route(event, worldName);
+            }
+            return null;
+        }
+
+        CompletableFuture<Void> routed = resume.copy()
+            .orTimeout(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .handle((ignored, error) -> {
+                if (error == null) {
+                    route(event, worldName);
+                } else if (unwrap(error) instanceof TimeoutException) {
+                    // Let them in on the default server and move them once their world is up
+                    resume.thenRun(() -> follow(player.getUniqueId(), worldName));
+                } else {
+                    logger.warn("Could not resume {} for {}: {}", worldName, player.getUsername(), unwrap(error).getMessage());
+                }
+                return null;
+            });
+        return EventTask.resumeWhenComplete(routed);
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        pendingResumes.remove(event.getPlayer().getUniqueId());
+    }
+
+    private Optional<WorldInfo> lastWorld(Player player) {
+        return store.get(player.getUniqueId()).flatMap(worldManager::getWorld);
+    }
+
+    private void route(PlayerChooseInitialServerEvent event, String worldName) {
+        server.getServer(worldName).ifPresent(event::setInitialServer);
+    }
+
+    private void follow(UUID playerId, String worldName) {
+        Optional<Player> player = server.getPlayer(playerId);
+        Optional<RegisteredServer> target = server.getServer(worldName);
+        if (player.isEmpty() || target.isEmpty()) {
+            return;
+        }
+        boolean alreadyThere = player.get().getCurrentServer()
+            .map(connection -> connection.getServerInfo().getName().equals(worldName))
+            .orElse(false);
+        if (!alreadyThere) {
+            player.get().sendMessage(Component.text(worldName + " is ready, taking you back there.", NamedTextColor.GREEN));
+            player.get().createConnectionRequest(target.get()).fireAndForget();
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
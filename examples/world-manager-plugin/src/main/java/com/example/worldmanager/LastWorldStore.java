@@ -0,0 +1,90 @@
+package com.example.worldmanager;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The world each player was last on, kept across restarts in a small
+ * properties file (player UUID = world name). Changes are held in memory and
+ * written out by {@link #save()}, which the plugin calls periodically and on shutdown.
+ */
+public class LastWorldStore {
+
+    private final Path path;
+    private final Logger logger;
+    private final Map<UUID, String> lastWorlds = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    private LastWorldStore(Path path, Logger logger) {
+        this.path = path;
+        this.logger = logger;
+    }
+
+    public static LastWorldStore load(Path path, Logger logger) {
+        LastWorldStore store = new LastWorldStore(path, logger);
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return store;
+        } catch (IOException e) {
+            logger.warn("Could not read last worlds from {}: {}", path, e.getMessage());
+            return store;
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                store.lastWorlds.put(UUID.fromString(key), properties.getProperty(key));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring invalid player id {} in {}", key, path);
+            }
+        }
+        return store;
+    }
+
+    public Optional<String> get(UUID playerId) {
+        return Optional.ofNullable(lastWorlds.get(playerId));
+    }
+
+    public void put(UUID playerId, String worldName) {
+        if (!worldName.equals(lastWorlds.put(playerId, worldName))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Write the file if anything changed since the last save. The file is replaced
+     * atomically, so a crash mid-save leaves the previous version.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        Properties properties = new Properties();
+        lastWorlds.forEach((playerId, worldName) -> properties.setProperty(playerId.toString(), worldName));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Last world per player");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            logger.warn("Could not save last worlds to {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.worldmanager;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds players who connect to a suspended world while it wakes up.
+ *
+ * The first connection starts the resume; everyone else joining the same
+ * world waits on that same resume and is let through together once the
+ * backend answers pings. Each world has a bounded number of waiting slots,
+ * and a player who waits longer than the timeout is turned away.
+ */
+public class ResumeOnConnectListener {
+
+    private final WorldManager worldManager;
+    private final Logger logger;
+    private final Duration waitTimeout;
+    private final int maxWaiters;
+    private final Map<String, AtomicInteger> waiters = new ConcurrentHashMap<>();
+
+    public ResumeOnConnectListener(WorldManager worldManager, WorldManagerConfig config, Logger logger) {
+        this.worldManager = worldManager;
+        this.logger = logger;
+        this.waitTimeout = config.getResumeWaitTimeout();
+        this.maxWaiters = config.getResumeMaxWaiters();
+    }
+
+    @Subscribe
+    public EventTask onServerPreConnect(ServerPreConnectEvent event) {
+        Optional<RegisteredServer> target = event.getResult().getServer();
+        if (target.isEmpty()) {
+            return null;
+        }
+
+        String worldName = target.get().getServerInfo().getName();
+        if (!worldManager.isWorldSuspended(worldName)) {
+            return null;
+        }
+
+        Player player = event.getPlayer();
+        AtomicInteger waiting = waiters.computeIfAbsent(worldName, name -> new AtomicInteger());
+        if (waiting.incrementAndGet() > maxWaiters) {
+            waiting.decrementAndGet();
+            event.setResult(ServerPreConnectEvent.ServerResult.denied());
+            player.sendMessage(Component.text("World " + worldName + " is still waking up, try again in a moment.", NamedTextColor.RED));
+            return null;
+        }
+
+        player.sendMessage(Component.text("Waking up " + worldName + "...", NamedTextColor.YELLOW));
+
+        CompletableFuture<Void> released = worldManager.resumeWorld(worldName)
+            .copy()
+            .orTimeout(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .handle((ignored, error) -> {
+                waiting.decrementAndGet();
+                if (error != null) {
+                    logger.warn("Player {} could not join {}: {}", player.getUsername(), worldName, error.getMessage());
+                    event.setResult(ServerPreConnectEvent.ServerResult.denied());
+                    player.sendMessage(Component.text("World " + worldName + " failed to wake up, try again later.", NamedTextColor.RED));
+                }
+                return null;
+            });
+
+        return EventTask.resumeWhenComplete(released);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.worldmanager;
+
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scales busy worlds out across forked replicas.
+ *
+ * A world and its replicas form a shard group. Replicas are ordinary worlds
+ * named &lt;world&gt;-shard-&lt;n&gt; whose parent is the world, so they are
+ * persisted, reconciled and idle-suspended like any other; the group is
+ * rebuilt from those names, which also makes it survive restarts.
+ *
+ * When every running member of a group has reached shard.playerThreshold
+ * players, a suspended replica is resumed or, below shard.maxReplicas, a new
+ * one is forked. Connections to the world's name are sent to the running
+ * member with the fewest players, and replicas that stay empty for
+ * shard.replicaIdleSeconds are suspended again. Each replica is a copy of the
+ * world as it was when forked; they do not share state afterwards.
+ */
+public class ShardManager {
+
+    static final String REPLICA_SEPARATOR = "-shard-";
+
+    private final ProxyServer server;
+    private final WorldManager worldManager;
+    private final WorldOccupancy occupancy;
+    private final Logger logger;
+    private final int playerThreshold;
+    private final int maxReplicas;
+    private final Duration replicaIdle;
+    private final Set<String> scaling = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> routedSinceTick = new ConcurrentHashMap<>();
+    private volatile Map<String, List<String>> replicasByWorld = Collections.emptyMap();
+
+    public ShardManager(ProxyServer server, WorldManager worldManager, WorldOccupancy occupancy,
+                        WorldManagerConfig config, Logger logger) {
+        this.server = server;
+        this.worldManager = worldManager;
+        this.occupancy = occupancy;
+        this.logger = logger;
+        this.playerThreshold = Math.max(1, config.getShardPlayerThreshold());
+        this.maxReplicas = config.getShardMaxReplicas();
+        this.replicaIdle = config.getShardReplicaIdle();
+        rebuildGroups();
+    }
+
+    /**
+     * Scale groups out or in as needed. Runs periodically on the proxy scheduler.
+     *
+     * Only running members can be full or idle, so a tick looks at the running
+     * worlds from the catalog's status index rather than at every world.
+     */
+    public void tick() {
+        rebuildGroups();
+        Instant now = Instant.now();
+        WorldCatalog catalog = worldManager.getCatalog();
+
+        Set<String> active = new LinkedHashSet<>();
+        for (WorldInfo world : catalog.matching(WorldCatalog.Query.all().withStatus(WorldInfo.Status.RUNNING))) {
+            if (isReplica(world)) {
+                maybeScaleIn(world, now);
+                active.add(world.getParentWorld());
+            } else if (world.isManaged()) {
+                active.add(world.getName());
+            }
+        }
+        for (String worldName : active) {
+            catalog.get(worldName)
+                .filter(world -> world.isManaged() && !isReplica(world))
+                .ifPresent(this::maybeScaleOut);
+        }
+
+        // Routed-but-not-yet-arrived players only need to count until occupancy catches up
+        routedSinceTick.clear();
+    }
+
+    /**
+     * Send players joining a sharded world to its least loaded running member. Runs
+     * early so that later listeners (e.g. resume on connect) see the chosen server.
+     */
+    @Subscribe(order = PostOrder.EARLY)
+    public void onServerPreConnect(ServerPreConnectEvent event) {
+        Optional<RegisteredServer> target = event.getResult().getServer();
+        if (target.isEmpty()) {
+            return;
+        }
+
+        String worldName = target.get().getServerInfo().getName();
+        List<String> replicas = replicasByWorld.get(worldName);
+        if (replicas == null || replicas.isEmpty()) {
+            return;
+        }
+
+        // A player who is already somewhere in the group stays where they are
+        Optional<String> current = event.getPlayer().getCurrentServer().map(connection -> connection.getServerInfo().getName());
+        if (current.isPresent() && (current.get().equals(worldName) || replicas.contains(current.get()))) {
+            return;
+        }
+
+        List<String> members = new ArrayList<>(replicas.size() + 1);
+        members.add(worldName);
+        members.addAll(replicas);
+
+        String chosen = null;
+        int lowest = Integer.MAX_VALUE;
+        for (String member : members) {
+            Optional<WorldInfo> world = worldManager.getWorld(member);
+            if (world.isEmpty() || world.get().getStatus() != WorldInfo.Status.RUNNING) {
+                continue;
+            }
+            int load = load(member);
+            if (load < lowest) {
+                lowest = load;
+                chosen = member;
+            }
+        }
+        if (chosen == null) {
+            // Nothing running; let the world wake up as usual
+            return;
+        }
+
+        routedSinceTick.computeIfAbsent(chosen, name -> new AtomicInteger()).incrementAndGet();
+        if (!chosen.equals(worldName)) {
+            server.getServer(chosen).ifPresent(replica -> event.setResult(ServerPreConnectEvent.ServerResult.allowed(replica)));
+        }
+    }
+
+    /**
+     * Replicas of a world, by name.
+     */
+    public List<String> getReplicas(String worldName) {
+        return replicasByWorld.getOrDefault(worldName, Collections.emptyList());
+    }
+
+    static boolean isReplica(WorldInfo world) {
+        String parent = world.getParentWorld();
+        return parent != null && world.getName().startsWith(parent + REPLICA_SEPARATOR);
+    }
+
+    private void maybeScaleOut(WorldInfo world) {
+        String worldName = world.getName();
+        List<String> replicas = getReplicas(worldName);
+
+        List<String> running = new ArrayList<>();
+        String suspendedReplica = null;
+        if (world.getStatus() == WorldInfo.Status.RUNNING) {
+            running.add(worldName);
+        }
+        for (String replica : replicas) {
+            WorldInfo.Status status = worldManager.getWorld(replica).map(WorldInfo::getStatus).orElse(null);
+            if (status == WorldInfo.Status.RUNNING) {
+                running.add(replica);
+            } else if (status == WorldInfo.Status.SUSPENDED && suspendedReplica == null) {
+                suspendedReplica = replica;
+            }
+        }
+
+        if (running.isEmpty() || running.stream().anyMatch(member -> load(member) < playerThreshold)) {
+            return;
+        }
+
+        CompletableFuture<?> action;
+        if (suspendedReplica != null) {
+            if (!scaling.add(worldName)) {
+                return;
+            }
+            logger.info("World {} is full ({} members at {}+ players), resuming replica {}",
+                worldName, running.size(), playerThreshold, suspendedReplica);
+            action = worldManager.resumeWorld(suspendedReplica);
+        } else if (replicas.size() < maxReplicas) {
+            if (!scaling.add(worldName)) {
+                return;
+            }
+            String replicaName = nextReplicaName(worldName, replicas);
+            logger.info("World {} is full ({} members at {}+ players), forking replica {}",
+                worldName, running.size(), playerThreshold, replicaName);
+            action = worldManager.forkWorld(worldName, replicaName);
+        } else {
+            logger.debug("World {} is full but already has {} replicas", worldName, replicas.size());
+            return;
+        }
+
+        action.whenComplete((ignored, e) -> {
+            scaling.remove(worldName);
+            if (e != null) {
+                logger.warn("Failed to scale out world {}: {}", worldName, e.getMessage());
+            }
+            rebuildGroups();
+        });
+    }
+
+    private void maybeScaleIn(WorldInfo replica, Instant now) {
+        String name = replica.getName();
+        if (replica.getStatus() != WorldInfo.Status.RUNNING || load(name) > 0 || scaling.contains(replica.getParentWorld())) {
+            return;
+        }
+
+        Instant emptySince = occupancy.getEmptySince(name);
+        Instant idleFrom = emptySince == null || emptySince.isBefore(replica.getStatusChangedAt())
+            ? replica.getStatusChangedAt() : emptySince;
+        if (Duration.between(idleFrom, now).compareTo(replicaIdle) < 0 || !scaling.add(name)) {
+            return;
+        }
+
+        logger.info("Replica {} has been empty for {}s, suspending it", name, Duration.between(idleFrom, now).getSeconds());
+        worldManager.suspendWorld(name).whenComplete((ignored, e) -> {
+            scaling.remove(name);
+            if (e != null) {
+                logger.warn("Failed to suspend replica {}: {}", name, e.getMessage());
+            }
+        });
+    }
+
+    private int load(String worldName) {
+        AtomicInteger routed = routedSinceTick.get(worldName);
+        return occupancy.getPlayerCount(worldName) + (routed == null ? 0 : routed.get());
+    }
+
+    private static String nextReplicaName(String worldName, List<String> replicas) {
+        for (int n = 2; ; n++) {
+            String candidate = worldName + REPLICA_SEPARATOR + n;
+            if (!replicas.contains(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Replicas are forks, so only the worlds in the catalog's parent index need
+     * looking at. Each group comes out sorted, since queries list by name.
+     */
+    private void rebuildGroups() {
+        WorldCatalog catalog = worldManager.getCatalog();
+        Map<String, List<String>> groups = new HashMap<>();
+        for (String parent : catalog.getParentWorlds()) {
+            for (WorldInfo world : catalog.matching(WorldCatalog.Query.all().withParent(parent))) {
+                if (isReplica(world)) {
+                    groups.computeIfAbsent(parent, name -> new ArrayList<>()).add(world.getName());
+                }
+            }
+        }
+        replicasByWorld = groups;
+    }
+}
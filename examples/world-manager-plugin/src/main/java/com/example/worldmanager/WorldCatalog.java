@@ -0,0 +1,381 @@
+package com.example.worldmanager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The worlds a {@link WorldManager} knows, indexed so that lookups and listings
+ * do not have to scan them all.
+ *
+ * Worlds are kept sorted by name, with secondary indexes by status, type,
+ * parent world and VM id. Each world is stored once; the indexes hold only its
+ * name. A {@link Query} walks the smallest index that applies, starting after
+ * a cursor, so a page of results costs about the same with a hundred worlds as
+ * with a hundred thousand, as long as one of its filters is selective or it has
+ * no filter at all.
+ *
+ * Status changes reach the status index through the world's status observer,
+ * just after the change. Queries check each world's current status again, so a
+ * world whose change is still being indexed is skipped rather than listed under
+ * its old status.
+ *
+ * All index updates for a name happen under that name's entry, so concurrent
+ * adds, removes and status changes of one world leave the indexes consistent.
+ */
+public class WorldCatalog {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, WorldInfo> byName = new ConcurrentSkipListMap<>();
+    private final Map<String, String> nameById = new ConcurrentHashMap<>();
+    private final Map<WorldInfo.Status, Index> byStatus = new EnumMap<>(WorldInfo.Status.class);
+    private final Map<WorldType, Index> byType = new EnumMap<>(WorldType.class);
+    private final Map<String, Index> byParent = new ConcurrentHashMap<>();
+    private final Collection<WorldInfo> view = Collections.unmodifiableCollection(byName.values());
+    private final Set<String> parents = Collections.unmodifiableSet(byParent.keySet());
+
+    WorldCatalog() {
+        for (WorldInfo.Status status : WorldInfo.Status.values()) {
+            byStatus.put(status, new Index());
+        }
+        for (WorldType type : WorldType.values()) {
+            byType.put(type, new Index());
+        }
+    }
+
+    public Optional<WorldInfo> get(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? Optional.empty() : Optional.of(entry.world);
+    }
+
+    /**
+     * The managed world backed by a VM.
+     */
+    public Optional<WorldInfo> getById(String vmId) {
+        String name = nameById.get(vmId);
+        return name == null ? Optional.empty() : get(name).filter(world -> world.getId().equals(vmId));
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int count(WorldInfo.Status status) {
+        return byStatus.get(status).size();
+    }
+
+    public int count(WorldType type) {
+        return byType.get(type).size();
+    }
+
+    /**
+     * How many worlds were forked from the given world.
+     */
+    public int countForks(String parentWorld) {
+        Index index = byParent.get(parentWorld);
+        return index == null ? 0 : index.size();
+    }
+
+    /**
+     * Names of the worlds that have been forked at least once, as a live read-only view.
+     */
+    public Set<String> getParentWorlds() {
+        return parents;
+    }
+
+    /**
+     * All worlds sorted by name, as a live read-only view. Iterating it copies
+     * nothing and sees worlds added or removed meanwhile, or not.
+     */
+    public Collection<WorldInfo> values() {
+        return view;
+    }
+
+    /**
+     * Worlds matching a query, sorted by name and visited lazily.
+     */
+    public Iterable<WorldInfo> matching(Query query) {
+        return () -> new Matches(query, null);
+    }
+
+    /**
+     * One page of worlds matching a query, sorted by name.
+     *
+     * @param cursor where the previous page ended, from {@link Page#getNextCursor()}, or null for the first page
+     * @param limit  how many worlds a page holds at most
+     */
+    public Page page(Query query, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        Matches matches = new Matches(query, cursor);
+        List<WorldInfo> worlds = new ArrayList<>(Math.min(limit, 64));
+        while (worlds.size() < limit && matches.hasNext()) {
+            worlds.add(matches.next());
+        }
+        String next = matches.hasNext() ? worlds.get(worlds.size() - 1).getName() : null;
+        return new Page(worlds, next);
+    }
+
+    /**
+     * Add a world, replacing any world of the same name.
+     */
+    void put(WorldInfo world) {
+        entries.compute(world.getName(), (name, current) -> {
+            if (current != null) {
+                unindex(name, current);
+            }
+            return index(name, world);
+        });
+    }
+
+    /**
+     * Add a world unless one of the same name is already there.
+     */
+    boolean putIfAbsent(WorldInfo world) {
+        return entries.computeIfAbsent(world.getName(), name -> index(name, world)).world == world;
+    }
+
+    /**
+     * Remove a world, if it is still the one catalogued under its name.
+     */
+    boolean remove(WorldInfo world) {
+        boolean[] removed = new boolean[1];
+        entries.computeIfPresent(world.getName(), (name, current) -> {
+            if (current.world != world) {
+                return current;
+            }
+            unindex(name, current);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private Entry index(String name, WorldInfo world) {
+        WorldInfo.Status status = world.getStatus();
+        byName.put(name, world);
+        nameById.put(world.getId(), name);
+        byStatus.get(status).add(name);
+        byType.get(world.getType()).add(name);
+        if (world.getParentWorld() != null) {
+            byParent.compute(world.getParentWorld(), (parent, index) -> {
+                Index forks = index == null ? new Index() : index;
+                forks.add(name);
+                return forks;
+            });
+        }
+        world.setStatusObserver(this::statusChanged);
+        return new Entry(world, status);
+    }
+
+    private void unindex(String name, Entry entry) {
+        WorldInfo world = entry.world;
+        world.setStatusObserver(null);
+        byName.remove(name, world);
+        nameById.remove(world.getId(), name);
+        byStatus.get(entry.status).remove(name);
+        byType.get(world.getType()).remove(name);
+        if (world.getParentWorld() != null) {
+            byParent.computeIfPresent(world.getParentWorld(), (parent, forks) -> {
+                forks.remove(name);
+                return forks.size() == 0 ? null : forks;
+            });
+        }
+    }
+
+    /**
+     * Move a world to its current status in the status index. The status is read
+     * again under the entry, so changes indexed out of order still end up right.
+     */
+    private void statusChanged(WorldInfo world) {
+        entries.computeIfPresent(world.getName(), (name, current) -> {
+            WorldInfo.Status status = world.getStatus();
+            if (current.world != world || current.status == status) {
+                return current;
+            }
+            byStatus.get(current.status).remove(name);
+            byStatus.get(status).add(name);
+            return new Entry(world, status);
+        });
+    }
+
+    /**
+     * Names in the smallest index that covers a query.
+     */
+    private NavigableSet<String> candidates(Query query) {
+        NavigableSet<String> smallest = byName.navigableKeySet();
+        int smallestSize = Integer.MAX_VALUE;
+        List<Index> indexes = new ArrayList<>(3);
+        if (query.status != null) {
+            indexes.add(byStatus.get(query.status));
+        }
+        if (query.type != null) {
+            indexes.add(byType.get(query.type));
+        }
+        if (query.parentWorld != null) {
+            indexes.add(byParent.getOrDefault(query.parentWorld, Index.EMPTY));
+        }
+        for (Index index : indexes) {
+            if (index.size() < smallestSize) {
+                smallest = index.names;
+                smallestSize = index.size();
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Which worlds to list. Filters combine; a query without filters matches every world.
+     */
+    public static final class Query {
+        private static final Query ALL = new Query(null, null, null);
+
+        private final WorldInfo.Status status;
+        private final WorldType type;
+        private final String parentWorld;
+
+        private Query(WorldInfo.Status status, WorldType type, String parentWorld) {
+            this.status = status;
+            this.type = type;
+            this.parentWorld = parentWorld;
+        }
+
+        public static Query all() {
+            return ALL;
+        }
+
+        public Query withStatus(WorldInfo.Status status) {
+            return new Query(status, type, parentWorld);
+        }
+
+        public Query withType(WorldType type) {
+            return new Query(status, type, parentWorld);
+        }
+
+        /**
+         * Only worlds forked from the given world.
+         */
+        public Query withParent(String parentWorld) {
+            return new Query(status, type, parentWorld);
+        }
+
+        boolean matches(WorldInfo world) {
+            return (status == null || world.getStatus() == status)
+                && (type == null || world.getType() == type)
+                && (parentWorld == null || parentWorld.equals(world.getParentWorld()));
+        }
+    }
+
+    /**
+     * A page of query results and the cursor for the page after it.
+     */
+    public static final class Page {
+        private final List<WorldInfo> worlds;
+        private final String nextCursor;
+
+        private Page(List<WorldInfo> worlds, String nextCursor) {
+            this.worlds = Collections.unmodifiableList(worlds);
+            this.nextCursor = nextCursor;
+        }
+
+        public List<WorldInfo> getWorlds() {
+            return worlds;
+        }
+
+        /**
+         * The cursor for the next page, or empty if this is the last one.
+         */
+        public Optional<String> getNextCursor() {
+            return Optional.ofNullable(nextCursor);
+        }
+    }
+
+    /**
+     * Walks the candidates for a query after a cursor, yielding the worlds that match.
+     */
+    private final class Matches implements Iterator<WorldInfo> {
+        private final Query query;
+        private final Iterator<String> names;
+        private WorldInfo next;
+
+        private Matches(Query query, String cursor) {
+            NavigableSet<String> candidates = candidates(query);
+            this.query = query;
+            this.names = (cursor == null ? candidates : candidates.tailSet(cursor, false)).iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && names.hasNext()) {
+                Entry entry = entries.get(names.next());
+                if (entry != null && query.matches(entry.world)) {
+                    next = entry.world;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public WorldInfo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            WorldInfo world = next;
+            next = null;
+            return world;
+        }
+    }
+
+    private static final class Entry {
+        private final WorldInfo world;
+        private final WorldInfo.Status status;
+
+        private Entry(WorldInfo world, WorldInfo.Status status) {
+            this.world = world;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Sorted names with a count, since counting a skip list walks all of it.
+     */
+    private static final class Index {
+        private static final Index EMPTY = new Index();
+
+        private final ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        private void add(String name) {
+            if (names.add(name)) {
+                size.incrementAndGet();
+            }
+        }
+
+        private void remove(String name) {
+            if (names.remove(name)) {
+                size.decrementAndGet();
+            }
+        }
+
+        private int size() {
+            return size.get();
+        }
+    }
+}
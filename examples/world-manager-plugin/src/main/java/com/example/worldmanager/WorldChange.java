@@ -0,0 +1,97 @@
+package com.example.worldmanager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A change to the world registry as passed between proxies: either a world's
+ * full state or its removal, and the proxy it came from. The world travels in
+ * the {@link WorldRegistry} record format, so every receiver decodes its own
+ * copy.
+ */
+public final class WorldChange {
+
+    private final String origin;
+    private final String worldName;
+    private final byte[] record;
+
+    private WorldChange(String origin, String worldName, byte[] record) {
+        this.origin = origin;
+        this.worldName = worldName;
+        this.record = record;
+    }
+
+    public static WorldChange put(String origin, WorldInfo world) {
+        return new WorldChange(origin, world.getName(), WorldRegistry.encode(world));
+    }
+
+    public static WorldChange removed(String origin, String worldName) {
+        return new WorldChange(origin, worldName, null);
+    }
+
+    /**
+     * The node id of the proxy that made the change.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public boolean isRemoval() {
+        return record == null;
+    }
+
+    /**
+     * The world as the other proxy recorded it, decoded afresh on every call.
+     */
+    public WorldInfo getWorld() {
+        if (record == null) {
+            throw new IllegalStateException("World " + worldName + " was removed");
+        }
+        return WorldRegistry.decode(record);
+    }
+
+    byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(record == null ? 64 : record.length + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(origin);
+            out.writeUTF(worldName);
+            out.writeBoolean(record != null);
+            if (record != null) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode change of world " + worldName, e);
+        }
+    }
+
+    static WorldChange decode(byte[] bytes) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            String origin = in.readUTF();
+            String worldName = in.readUTF();
+            byte[] record = null;
+            if (in.readBoolean()) {
+                record = new byte[in.readInt()];
+                in.readFully(record);
+            }
+            return new WorldChange(origin, worldName, record);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot decode world change: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (record == null ? "removal of " : "update of ") + worldName + " from " + origin;
+    }
+}
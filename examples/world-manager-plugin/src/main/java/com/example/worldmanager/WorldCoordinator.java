@@ -0,0 +1,106 @@
+package com.example.worldmanager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Coordinates world operations and registry changes between proxies that share
+ * the same worlds, e.g. several Velocity proxies behind a load balancer.
+ *
+ * Before a proxy creates, forks, suspends, resumes or deletes a world it takes
+ * that world's lease. A proxy that cannot get the lease does not call the VM
+ * API itself but waits for the change the lease holder publishes, so each
+ * operation runs once across the cluster. Every registry change a proxy makes
+ * is published to the others.
+ *
+ * {@link InProcessCoordinator} serves a single proxy, or several world managers
+ * in one JVM in tests; {@link FileCoordinator} serves proxies that share a
+ * directory. Calls are short but may block on I/O.
+ */
+public interface WorldCoordinator extends AutoCloseable {
+
+    /**
+     * This proxy's name in the cluster, unique among the proxies sharing the worlds.
+     */
+    String getNodeId();
+
+    /**
+     * Take the lease on a world for up to ttl. Empty if another holder's lease has
+     * not expired yet, including an earlier lease of this proxy.
+     */
+    Optional<Lease> tryAcquire(String worldName, Duration ttl);
+
+    /**
+     * Extend a lease this proxy still holds to ttl from now, for operations that take
+     * longer than one lease. False if it has been given back or taken over meanwhile.
+     */
+    boolean renew(Lease lease, Duration ttl);
+
+    /**
+     * Give a lease back early. Does nothing if it has expired and been taken by someone else.
+     */
+    void release(Lease lease);
+
+    /**
+     * Tell the other proxies about a registry change.
+     */
+    void publish(WorldChange change);
+
+    /**
+     * Deliver changes published by other proxies, one at a time and in order.
+     * Delivery starts when the listener is set; a coordinator that keeps changes
+     * delivers those from before this proxy started first.
+     */
+    void setListener(Consumer<WorldChange> listener);
+
+    /**
+     * Deliver every change published so far before returning, e.g. right after
+     * taking a lease, so that what the previous holder did is known here before
+     * this proxy acts on the world. Does nothing before a listener is set.
+     */
+    void catchUp();
+
+    @Override
+    void close();
+
+    /**
+     * The right to run operations on one world until it expires. The token grows
+     * with every lease on the same world, and stays the same when it is renewed.
+     */
+    final class Lease {
+        private final String worldName;
+        private final String owner;
+        private final long token;
+        private final Instant expiresAt;
+
+        Lease(String worldName, String owner, long token, Instant expiresAt) {
+            this.worldName = worldName;
+            this.owner = owner;
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getWorldName() {
+            return worldName;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public long getToken() {
+            return token;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        @Override
+        public String toString() {
+            return "lease " + token + " on " + worldName + " held by " + owner + " until " + expiresAt;
+        }
+    }
+}
@@ -1,36 +1,93 @@
 package com.example.worldmanager;
 
 import java.net.InetSocketAddress;
+import java.time.Instant;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Information about a managed Minecraft world. Each world corresponds to a VM
  * instance running a Minecraft server.
+ *
+ * The lifecycle status lives in a single atomic reference together with the
+ * time it was entered and, for SUSPENDING and RESUMING, the operation driving
+ * the transition. Transitions are compare-and-set, so of several concurrent
+ * suspends or resumes exactly one starts the API call and the rest can join
+ * its future.
+ *
+ * Every status change is reported to the world's status observer, which is how
+ * the {@link WorldCatalog} keeps its status index current.
  */
 public class WorldInfo {
 
     /**
-     * Status of a world
+     * Status of a world. RUNNING -> SUSPENDING -> SUSPENDED -> RESUMING -> RUNNING;
+     * a failed transition falls back to the status it started from.
      */
     public enum Status {
         RUNNING,
+        SUSPENDING,
         SUSPENDED,
-        STOPPED
+        RESUMING,
+        STOPPED;
+
+        /**
+         * Whether players have to wait for a resume before they can join.
+         */
+        public boolean isAsleep() {
+            return this == SUSPENDING || this == SUSPENDED || this == RESUMING;
+        }
+
+        public boolean isTransitional() {
+            return this == SUSPENDING || this == RESUMING;
+        }
+    }
+
+    /**
+     * An immutable snapshot of a world's lifecycle.
+     */
+    static final class Lifecycle {
+        private final Status status;
+        private final Instant since;
+        private final CompletableFuture<Void> operation;
+
+        private Lifecycle(Status status, Instant since, CompletableFuture<Void> operation) {
+            this.status = status;
+            this.since = since;
+            this.operation = operation;
+        }
+
+        Status getStatus() {
+            return status;
+        }
+
+        /**
+         * The suspend or resume in flight, or null in a settled status.
+         */
+        CompletableFuture<Void> getOperation() {
+            return operation;
+        }
     }
 
     private final String id;
     private final String name;
     private final WorldType type;
     private final InetSocketAddress address;
-    private Status status;
+    private final AtomicReference<Lifecycle> lifecycle;
+    private volatile Instant lastActiveAt;
     private String parentWorld;
+    private volatile boolean managed = true;
+    private volatile Consumer<WorldInfo> statusObserver;
 
     public WorldInfo(String id, String name, WorldType type, InetSocketAddress address, Status status) {
         this.id = id;
         this.name = name;
         this.type = type;
         this.address = address;
-        this.status = status;
+        this.lifecycle = new AtomicReference<>(new Lifecycle(status, Instant.now(), null));
+        this.lastActiveAt = lifecycle.get().since;
     }
 
     public String getId() {
@@ -50,11 +107,101 @@ public class WorldInfo {
     }
 
     public Status getStatus() {
-        return status;
+        return lifecycle.get().status;
     }
 
+    /**
+     * Set the status unconditionally, dropping any transition in flight. Only for
+     * statuses learned from outside, e.g. when restoring worlds.
+     */
     public void setStatus(Status status) {
-        this.status = status;
+        lifecycle.set(new Lifecycle(status, Instant.now(), null));
+        statusChanged();
+    }
+
+    /**
+     * Set the status together with when it was entered, e.g. as recorded before a restart.
+     */
+    void restoreStatus(Status status, Instant since) {
+        lifecycle.set(new Lifecycle(status, since, null));
+        statusChanged();
+    }
+
+    /**
+     * Move from one settled status to another if the world is still in the expected one.
+     */
+    public boolean compareAndSetStatus(Status expected, Status next) {
+        Lifecycle current = lifecycle.get();
+        if (current.status != expected || !lifecycle.compareAndSet(current, new Lifecycle(next, Instant.now(), null))) {
+            return false;
+        }
+        statusChanged();
+        return true;
+    }
+
+    /**
+     * When the status last changed, e.g. how long a running world has been up.
+     */
+    public Instant getStatusChangedAt() {
+        return lifecycle.get().since;
+    }
+
+    Lifecycle getLifecycle() {
+        return lifecycle.get();
+    }
+
+    /**
+     * Enter a transitional status driven by an operation, if the lifecycle is still
+     * the snapshot the caller looked at.
+     */
+    boolean beginTransition(Lifecycle expected, Status next, CompletableFuture<Void> operation) {
+        if (!lifecycle.compareAndSet(expected, new Lifecycle(next, Instant.now(), operation))) {
+            return false;
+        }
+        statusChanged();
+        return true;
+    }
+
+    /**
+     * Leave the transition started with an operation. Does nothing if the status has
+     * been changed by someone else meanwhile.
+     */
+    boolean finishTransition(CompletableFuture<Void> operation, Status next) {
+        Lifecycle current;
+        do {
+            current = lifecycle.get();
+            if (current.operation != operation) {
+                return false;
+            }
+        } while (!lifecycle.compareAndSet(current, new Lifecycle(next, Instant.now(), null)));
+        statusChanged();
+        return true;
+    }
+
+    /**
+     * Call the observer after every status change, with the world. Only one observer
+     * is kept; null removes it.
+     */
+    void setStatusObserver(Consumer<WorldInfo> statusObserver) {
+        this.statusObserver = statusObserver;
+    }
+
+    private void statusChanged() {
+        Consumer<WorldInfo> observer = statusObserver;
+        if (observer != null) {
+            observer.accept(this);
+        }
+    }
+
+    /**
+     * When a player last joined or left this world.
+     */
+    public Instant getLastActiveAt() {
+        return lastActiveAt;
+    }
+
+    public void markActive() {
+        this.lastActiveAt = Instant.now();
     }
 
     public String getParentWorld() {
@@ -65,6 +212,18 @@ public class WorldInfo {
         this.parentWorld = parentWorld;
     }
 
+    /**
+     * Whether this world is backed by a Freestyle VM the manager knows the id of.
+     * Servers that only come from velocity.toml are not.
+     */
+    public boolean isManaged() {
+        return managed;
+    }
+
+    public void setManaged(boolean managed) {
+        this.managed = managed;
+    }
+
     @Override
     public String toString() {
         return "WorldInfo{"
@@ -72,7 +231,7 @@ public class WorldInfo {
                 + ", name='" + name + '\''
                 + ", type=" + type
                 + ", address=" + address
-                + ", status=" + status
+                + ", status=" + getStatus()
                 + ", parentWorld='" + parentWorld + '\''
                 + '}';
     }
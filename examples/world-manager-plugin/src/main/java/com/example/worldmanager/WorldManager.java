@@ -7,12 +7,28 @@ import org.slf4j.Logger;
 
 import com.example.velocityplugin.FreestylePlugin;
 import com.example.velocityplugin.vm.FreestyleVMManager;
+import com.example.velocityplugin.vm.OperationScheduler;
+import com.example.velocityplugin.vm.OperationScheduler.Priority;
 import com.example.velocityplugin.vm.ServerInstance;
+import com.example.velocityplugin.vm.VmStatusChange;
+import com.example.velocityplugin.vm.VmStatusFeed;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * WorldManager provides a Minecraft-focused API for managing worlds.
@@ -24,26 +40,122 @@ import java.util.concurrent.CompletableFuture;
  * 
  * This demonstrates how to build user-friendly abstractions on top
  * of the generic VM management system.
+ *
+ * Worlds are recorded in a {@link WorldRegistry} as they change, and are
+ * restored and re-registered with Velocity on startup. In memory they are kept
+ * in a {@link WorldCatalog}, indexed by status, type and parent world.
+ *
+ * Suspends and resumes go through the compare-and-set lifecycle on
+ * {@link WorldInfo}, and creates and forks are keyed by the new world's name, so
+ * a request that repeats one already in flight joins its future instead of
+ * sending another VM call.
+ *
+ * VM calls go through the Freestyle plugin's {@link OperationScheduler}: resumes
+ * as interactive work, creates and forks as user work, and cleanup as
+ * background work.
+ *
+ * VM state changes pushed by the Freestyle plugin's {@link VmStatusFeed} are
+ * applied as they arrive, e.g. a world whose VM was suspended from outside the
+ * proxy is marked suspended at once instead of at the next reconciliation, and
+ * a resume waits for the VM's ready event before it pings the backend.
+ *
+ * With a {@link CapacityLimiter} set, creates, forks and resumes wait for room
+ * under the cap on running worlds before they start a VM.
+ *
+ * Proxies that share worlds coordinate through a {@link WorldCoordinator}:
+ * each create, fork, suspend, resume and delete runs under the world's lease,
+ * so only one proxy calls the VM API for it and the others wait for its
+ * result, and every registry change is published to the other proxies and
+ * applied there.
  */
 public class WorldManager {
     
+    private static final long REACHABILITY_POLL_MILLIS = 500;
+    
     private final ProxyServer server;
     private final Logger logger;
+    private final WorldManagerConfig config;
     private final FreestyleVMManager vmManager;
-    private final Map<String, WorldInfo> worlds = new ConcurrentHashMap<>();
-    private final Set<String> suspendedWorlds = ConcurrentHashMap.newKeySet();
+    private final OperationScheduler scheduler;
+    private final WorldRegistry registry;
+    private final VmStatusFeed statusFeed;
+    private final VmStatusFeed.Listener statusListener = this::onVmStatusChange;
+    private final WorldCatalog worlds = new WorldCatalog();
     private final Map<String, RegisteredServer> activeRegisteredServers = new ConcurrentHashMap<>();
+    private final Map<String, PendingCreate> pendingCreates = new ConcurrentHashMap<>();
+    private final WorldCoordinator coordinator;
+    private final Duration leaseTtl;
+    private final Map<String, List<RemoteWaiter>> remoteWaiters = new ConcurrentHashMap<>();
+    private volatile CapacityLimiter capacity;
+    
+    public WorldManager(ProxyServer server, Logger logger, WorldManagerConfig config) {
+        this(server, logger, config, getVMManager(logger));
+    }
+    
+    /**
+     * Create a world manager on top of a specific VM manager rather than the one
+     * owned by the Freestyle plugin, e.g. for benchmarks against a stand-in API.
+     */
+    public WorldManager(ProxyServer server, Logger logger, WorldManagerConfig config, FreestyleVMManager vmManager) {
+        this(server, logger, config, vmManager, openCoordinator(config, logger));
+    }
     
-    public WorldManager(ProxyServer server, Logger logger) {
+    /**
+     * Create a world manager that shares its worlds with other proxies through a
+     * specific coordinator, e.g. several managers in one JVM joined to one
+     * {@link InProcessCoordinator.Cluster}.
+     */
+    public WorldManager(ProxyServer server, Logger logger, WorldManagerConfig config, FreestyleVMManager vmManager,
+                        WorldCoordinator coordinator) {
         this.server = server;
         this.logger = logger;
-        this.vmManager = getVMManager();
+        this.config = config;
+        this.vmManager = vmManager;
+        this.scheduler = vmManager.getScheduler();
+        this.registry = openRegistry(config, logger);
+        this.statusFeed = vmManager.getStatusFeed();
+        this.coordinator = coordinator;
+        this.leaseTtl = config.getCoordinationLeaseTtl();
         
-        // Initialize with existing servers from velocity config
+        // Bring back worlds from before the restart, then any other servers from velocity config
+        restoreWorlds();
         initializeExistingWorlds();
+        statusFeed.addListener(statusListener);
+        // Then catch up with what the other proxies did meanwhile
+        coordinator.setListener(this::onRemoteChange);
+    }
+    
+    private static WorldCoordinator openCoordinator(WorldManagerConfig config, Logger logger) {
+        if (!config.getCoordinationBackend().equals("file")) {
+            return InProcessCoordinator.standalone();
+        }
+        try {
+            WorldCoordinator coordinator = new FileCoordinator(config.getCoordinationPath(), config.getCoordinationNodeId(),
+                config.getCoordinationPollInterval(), logger);
+            logger.info("Sharing worlds with other proxies through {} as {}", config.getCoordinationPath(),
+                coordinator.getNodeId());
+            return coordinator;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not open coordination directory {}, worlds will not be shared with other proxies: {}",
+                config.getCoordinationPath(), e.getMessage());
+            return InProcessCoordinator.standalone();
+        }
+    }
+    
+    private static WorldRegistry openRegistry(WorldManagerConfig config, Logger logger) {
+        if (!config.isRegistryEnabled()) {
+            return WorldRegistry.inMemory(logger);
+        }
+        try {
+            return WorldRegistry.open(config.getRegistryPath(), logger, config.isRegistrySync());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not open world registry {}, worlds will not survive a restart: {}",
+                config.getRegistryPath(), e.getMessage());
+            return WorldRegistry.inMemory(logger);
+        }
     }
     
-    private FreestyleVMManager getVMManager() {
+    private static FreestyleVMManager getVMManager(Logger logger) {
         FreestyleVMManager vmManager = FreestylePlugin.getVMManager();
         
         if (vmManager == null) {
@@ -58,23 +170,28 @@ public class WorldManager {
      * Creates a new world by provisioning a VM and Minecraft server
      */
     public CompletableFuture<WorldInfo> createWorld(String worldName, WorldType type) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                logger.info("Creating new world: {} of type {}", worldName, type);
-                
-                // Use the Freestyle VM service to create a new server
-                ServerInstance serverInstance = vmManager.createServer(worldName);
-                
+        return deduplicate(worldName, "create " + type, () -> startCreate(worldName, type));
+    }
+    
+    private CompletableFuture<WorldInfo> startCreate(String worldName, WorldType type) {
+        logger.info("Creating new world: {} of type {}", worldName, type);
+        
+        // Use the Freestyle VM service to create a new server from the base VM for this type
+        CompletableFuture<Runnable> admission = admit(worldName, Priority.USER);
+        return admission
+            .thenCompose(ignored -> scheduler.submit(Priority.USER, () -> vmManager.createServerAsync(worldName, type.name())))
+            .thenApply(serverInstance -> {
                 // Extract server details - no more reflection!
                 String serverId = serverInstance.getId();
                 InetSocketAddress address = serverInstance.getAddress();
                 
                 WorldInfo world = new WorldInfo(serverId, worldName, type, address, WorldInfo.Status.RUNNING);
-                worlds.put(worldName, world);
                 
                 // Register with Velocity proxy
                 ServerInfo serverInfo = new ServerInfo(worldName, address);
-                RegisteredServer registeredServer = server.registerServer(serverInfo);
+                RegisteredServer registeredServer = registerOrDiscard(serverInfo, serverInstance);
+                worlds.put(world);
+                record(world);
                 activeRegisteredServers.put(worldName, registeredServer);
                 
                 logger.info("Successfully registered server: {} -> {}", worldName, address);
@@ -89,41 +206,47 @@ public class WorldManager {
                 logger.info("Successfully created world: {}", world);
                 
                 return world;
-                
-            } catch (Exception e) {
-                logger.error("Failed to create world: {}", worldName, e);
-                throw new RuntimeException("Failed to create world: " + e.getMessage(), e);
-            }
-        });
+            })
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                logger.error("Failed to create world: {}", worldName, cause);
+                throw new RuntimeException("Failed to create world: " + cause.getMessage(), cause);
+            })
+            .whenComplete((world, e) -> release(admission));
     }
     
     /**
      * Forks an existing world to create a copy
      */
     public CompletableFuture<WorldInfo> forkWorld(String sourceWorldName, String newWorldName) {
-        return CompletableFuture.supplyAsync(() -> {
-            WorldInfo sourceWorld = worlds.get(sourceWorldName);
-            if (sourceWorld == null) {
-                throw new IllegalArgumentException("Source world not found: " + sourceWorldName);
-            }
-            
-            try {
-                logger.info("Forking world {} to create {}", sourceWorldName, newWorldName);
-                
-                // Use the Freestyle VM service to fork the server
-                ServerInstance newServerInstance = vmManager.forkServer(sourceWorld.getId(), newWorldName);
-                
+        WorldInfo sourceWorld = worlds.get(sourceWorldName).orElse(null);
+        if (sourceWorld == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Source world not found: " + sourceWorldName));
+        }
+        return deduplicate(newWorldName, "fork of " + sourceWorldName, () -> startFork(sourceWorld, newWorldName));
+    }
+    
+    private CompletableFuture<WorldInfo> startFork(WorldInfo sourceWorld, String newWorldName) {
+        String sourceWorldName = sourceWorld.getName();
+        logger.info("Forking world {} to create {}", sourceWorldName, newWorldName);
+        
+        // Use the Freestyle VM service to fork the server
+        CompletableFuture<Runnable> admission = admit(newWorldName, Priority.USER);
+        return admission
+            .thenCompose(ignored -> scheduler.submit(Priority.USER, () -> vmManager.forkServerAsync(sourceWorld.getId(), newWorldName)))
+            .thenApply(newServerInstance -> {
                 // Extract server details - no more reflection!
                 String newServerId = newServerInstance.getId();
                 InetSocketAddress newAddress = newServerInstance.getAddress();
                 
                 WorldInfo newWorld = new WorldInfo(newServerId, newWorldName, sourceWorld.getType(), newAddress, WorldInfo.Status.RUNNING);
                 newWorld.setParentWorld(sourceWorldName);
-                worlds.put(newWorldName, newWorld);
                 
                 // Register with Velocity
                 ServerInfo serverInfo = new ServerInfo(newWorldName, newAddress);
-                RegisteredServer registeredServer = server.registerServer(serverInfo);
+                RegisteredServer registeredServer = registerOrDiscard(serverInfo, newServerInstance);
+                worlds.put(newWorld);
+                record(newWorld);
                 activeRegisteredServers.put(newWorldName, registeredServer);
                 
                 logger.info("Successfully registered forked server: {} -> {}", newWorldName, newAddress);
@@ -137,109 +260,993 @@ public class WorldManager {
                 
                 logger.info("Successfully forked world {} to {}", sourceWorldName, newWorldName);
                 return newWorld;
-                
-            } catch (Exception e) {
-                logger.error("Failed to fork world {} to {}", sourceWorldName, newWorldName, e);
-                throw new RuntimeException("Failed to fork world: " + e.getMessage(), e);
+            })
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                logger.error("Failed to fork world {} to {}", sourceWorldName, newWorldName, cause);
+                throw new RuntimeException("Failed to fork world: " + cause.getMessage(), cause);
+            })
+            .whenComplete((world, e) -> release(admission));
+    }
+    
+    /**
+     * Register a new world's server with Velocity. If that fails (e.g. the name is
+     * taken by a server from velocity.toml) the VM is deleted again rather than left
+     * running with nothing pointing at it.
+     */
+    private RegisteredServer registerOrDiscard(ServerInfo serverInfo, ServerInstance instance) {
+        try {
+            return server.registerServer(serverInfo);
+        } catch (RuntimeException e) {
+            discard(instance, serverInfo.getName(), e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Delete a VM that was created for a world but could not be registered.
+     * If the delete fails too, the reaper picks the VM up as an orphan later.
+     */
+    private void discard(ServerInstance instance, String worldName, RuntimeException reason) {
+        logger.warn("Could not register world {}, deleting VM {}: {}", worldName, instance.getId(), reason.getMessage());
+        scheduler.submit(Priority.BACKGROUND, () -> vmManager.deleteServerAsync(instance.getId())).exceptionally(error -> {
+            logger.error("Failed to delete unregistered VM {}: {}", instance.getId(), unwrap(error).getMessage());
+            return null;
+        });
+    }
+    
+    /**
+     * Run a create or fork of a new world unless one for that name is already in
+     * flight. The same operation joins the one in flight; a different one fails.
+     */
+    private CompletableFuture<WorldInfo> deduplicate(String worldName, String operation,
+                                                     Supplier<CompletableFuture<WorldInfo>> start) {
+        if (worlds.contains(worldName)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("World already exists: " + worldName));
+        }
+        
+        PendingCreate created = new PendingCreate(operation);
+        PendingCreate existing = pendingCreates.putIfAbsent(worldName, created);
+        if (existing != null) {
+            if (existing.operation.equals(operation)) {
+                logger.debug("Joining {} of world {} already in progress", operation, worldName);
+                return existing.future;
+            }
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                "World " + worldName + " is already being created (" + existing.operation + ")"));
+        }
+        
+        // Another proxy's world has been added here by the time waiters hear of it
+        underLease(worldName, leaseTtl, () -> {
+            // Another proxy may have created it just before this one got the lease
+            if (worlds.contains(worldName)) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("World already exists: " + worldName));
+            }
+            return start.get();
+        }, Objects::nonNull, change -> worlds.get(worldName)
+            .orElseThrow(() -> new IllegalStateException("World " + worldName + " from another proxy could not be added here"))
+        ).whenComplete((world, e) -> {
+            pendingCreates.remove(worldName, created);
+            if (e != null) {
+                created.future.completeExceptionally(unwrap(e));
+            } else {
+                created.future.complete(world);
             }
         });
+        return created.future;
     }
     
     /**
-     * Suspends a world to save resources
+     * A create or fork of a world that does not exist yet.
      */
-    public CompletableFuture<Void> suspendWorld(String worldName) {
-        return CompletableFuture.runAsync(() -> {
-            WorldInfo world = worlds.get(worldName);
-            if (world == null) {
-                throw new IllegalArgumentException("World not found: " + worldName);
+    private static final class PendingCreate {
+        private final String operation;
+        private final CompletableFuture<WorldInfo> future = new CompletableFuture<>();
+        
+        private PendingCreate(String operation) {
+            this.operation = operation;
+        }
+    }
+    
+    /**
+     * Forks one world into many at once, e.g. a copy of a map for every match of a
+     * tournament round. Names come from namePattern with %d replaced by 1..count, or
+     * with "-n" appended if it has no %d. At most fork.batchConcurrency forks are
+     * in flight at a time, so with enough concurrency the batch takes about as long
+     * as a single fork.
+     *
+     * Once every fork has settled, the successful ones are registered with Velocity
+     * in one pass. A failed fork only fails its own future; a VM that was forked but
+     * could not be registered (e.g. the name was taken meanwhile) is deleted again
+     * rather than left running unseen.
+     */
+    public ForkBatch forkWorldBatch(String sourceWorldName, String namePattern, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        
+        List<String> names = new ArrayList<>(count);
+        List<CompletableFuture<WorldInfo>> forks = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            names.add(namePattern.contains("%d") ? String.format(namePattern, i) : namePattern + "-" + i);
+            forks.add(new CompletableFuture<>());
+        }
+        
+        WorldInfo sourceWorld = worlds.get(sourceWorldName).orElse(null);
+        Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < count; i++) {
+            String name = names.get(i);
+            if (sourceWorld == null) {
+                forks.get(i).completeExceptionally(new IllegalArgumentException("Source world not found: " + sourceWorldName));
+            } else if (worlds.contains(name) || names.indexOf(name) != i) {
+                forks.get(i).completeExceptionally(new IllegalArgumentException("World already exists: " + name));
+            } else if (reserve(name, "batch fork of " + sourceWorldName, forks.get(i))) {
+                pending.add(i);
             }
+        }
+        
+        long start = System.nanoTime();
+        if (!pending.isEmpty()) {
+            logger.info("Forking world {} into {} copies ({})", sourceWorldName, pending.size(), namePattern);
             
-            try {
-                logger.info("Suspending world: {}", worldName);
-                
-                // Use the Freestyle VM service to suspend the server
-                vmManager.suspendServer(world.getId());
-                
-                world.setStatus(WorldInfo.Status.SUSPENDED);
-                suspendedWorlds.add(worldName);
-                
-                // Unregister from Velocity
-                server.getServer(worldName).ifPresent(registeredServer -> {
-                    server.unregisterServer(registeredServer.getServerInfo());
-                });
-                
-                logger.info("Successfully suspended world: {}", worldName);
-                
-            } catch (Exception e) {
-                logger.error("Failed to suspend world: {}", worldName, e);
-                throw new RuntimeException("Failed to suspend world: " + e.getMessage(), e);
+            Map<Integer, ServerInstance> forked = new ConcurrentHashMap<>();
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(pending.size(), Math.max(1, config.getForkBatchConcurrency()))];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = forkNext(sourceWorld, names, forks, pending, forked);
             }
-        });
+            CompletableFuture.allOf(workers).thenRun(() -> registerBatch(sourceWorld, names, forks, forked));
+        }
+        
+        CompletableFuture<ForkBatch.Result> result = CompletableFuture.allOf(forks.toArray(new CompletableFuture<?>[0]))
+            .handle((ignored, e) -> {
+                Map<String, WorldInfo> created = new LinkedHashMap<>();
+                Map<String, Throwable> failed = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String name = names.get(i);
+                    forks.get(i).handle((world, error) -> error == null ? created.put(name, world) : failed.put(name, unwrap(error))).join();
+                }
+                ForkBatch.Result batchResult = new ForkBatch.Result(created, failed);
+                logger.info("Batch fork of {}: {} in {}ms", sourceWorldName, batchResult, (System.nanoTime() - start) / 1_000_000);
+                return batchResult;
+            });
+        
+        return new ForkBatch(names, forks, result);
     }
     
     /**
-     * Resumes a suspended world
+     * Claim a world name for a batch fork, here and across proxies, so that single
+     * creates and forks of the same name fail rather than race it. The claim ends
+     * when the fork settles. If the name cannot be claimed, the fork is failed here.
      */
-    public CompletableFuture<Void> resumeWorld(String worldName) {
-        return CompletableFuture.runAsync(() -> {
-            WorldInfo world = worlds.get(worldName);
-            if (world == null || !suspendedWorlds.contains(worldName)) {
-                throw new IllegalArgumentException("Suspended world not found: " + worldName);
+    private boolean reserve(String worldName, String operation, CompletableFuture<WorldInfo> fork) {
+        PendingCreate reservation = new PendingCreate(operation);
+        if (pendingCreates.putIfAbsent(worldName, reservation) != null) {
+            fork.completeExceptionally(new IllegalStateException("World " + worldName + " is already being created"));
+            return false;
+        }
+        Optional<WorldCoordinator.Lease> lease = Optional.empty();
+        try {
+            lease = coordinator.tryAcquire(worldName, leaseTtl);
+            if (lease.isPresent()) {
+                coordinator.catchUp();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not take the lease on world {}: {}", worldName, e.getMessage());
+            lease.ifPresent(coordinator::release);
+            lease = Optional.empty();
+        }
+        if (lease.isEmpty()) {
+            pendingCreates.remove(worldName, reservation);
+            fork.completeExceptionally(new IllegalStateException("World " + worldName + " is already being created"));
+            return false;
+        }
+        WorldCoordinator.Lease held = lease.get();
+        // Another proxy may have created it just before this one got the lease
+        if (worlds.contains(worldName)) {
+            coordinator.release(held);
+            pendingCreates.remove(worldName, reservation);
+            fork.completeExceptionally(new IllegalArgumentException("World already exists: " + worldName));
+            return false;
+        }
+        keepRenewed(held, fork);
+        fork.whenComplete((world, e) -> {
+            coordinator.release(held);
+            pendingCreates.remove(worldName, reservation);
+            if (e != null) {
+                reservation.future.completeExceptionally(unwrap(e));
+            } else {
+                reservation.future.complete(world);
             }
+        });
+        return true;
+    }
+    
+    /**
+     * One of the concurrent fork workers: fork the next pending name until none are left.
+     */
+    private CompletableFuture<Void> forkNext(WorldInfo sourceWorld, List<String> names, List<CompletableFuture<WorldInfo>> forks,
+                                             Queue<Integer> pending, Map<Integer, ServerInstance> forked) {
+        Integer index = pending.poll();
+        if (index == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        // The slot is held until the fork is registered or has failed
+        CompletableFuture<Runnable> admission = admit(names.get(index), Priority.USER);
+        forks.get(index).whenComplete((world, e) -> release(admission));
+        return admission
+            .thenCompose(ignored -> scheduler.submit(Priority.USER, () -> vmManager.forkServerAsync(sourceWorld.getId(), names.get(index))))
+            .handle((instance, e) -> {
+                if (e != null) {
+                    Throwable cause = unwrap(e);
+                    logger.error("Failed to fork world {} to {}: {}", sourceWorld.getName(), names.get(index), cause.getMessage());
+                    forks.get(index).completeExceptionally(new RuntimeException("Failed to fork world: " + cause.getMessage(), cause));
+                } else {
+                    forked.put(index, instance);
+                }
+                return null;
+            })
+            .thenCompose(ignored -> forkNext(sourceWorld, names, forks, pending, forked));
+    }
+    
+    private void registerBatch(WorldInfo sourceWorld, List<String> names, List<CompletableFuture<WorldInfo>> forks,
+                               Map<Integer, ServerInstance> forked) {
+        new TreeMap<>(forked).forEach((index, instance) -> {
+            String name = names.get(index);
+            WorldInfo world = new WorldInfo(instance.getId(), name, sourceWorld.getType(), instance.getAddress(), WorldInfo.Status.RUNNING);
+            world.setParentWorld(sourceWorld.getName());
             
             try {
-                logger.info("Resuming world: {}", worldName);
-                
-                world.setStatus(WorldInfo.Status.RUNNING); 
-                suspendedWorlds.remove(worldName);
+                if (!worlds.putIfAbsent(world)) {
+                    throw new IllegalStateException("World already exists: " + name);
+                }
+                try {
+                    activeRegisteredServers.put(name, server.registerServer(new ServerInfo(name, instance.getAddress())));
+                } catch (RuntimeException e) {
+                    worlds.remove(world);
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                discard(instance, name, e);
+                forks.get(index).completeExceptionally(e);
+                return;
+            }
+            
+            record(world);
+            forks.get(index).complete(world);
+        });
+    }
+    
+    /**
+     * Suspends a world to save resources. The server stays registered with
+     * Velocity so that players connecting to it can wake it up again.
+     *
+     * Suspending a world that is already suspended succeeds at once, and one that is
+     * being suspended joins that suspend. A world that is being resumed cannot be
+     * suspended until the resume has finished.
+     *
+     * Suspends are scheduled as background work, since nobody is waiting on them.
+     */
+    public CompletableFuture<Void> suspendWorld(String worldName) {
+        return suspendWorld(worldName, Priority.BACKGROUND);
+    }
+    
+    /**
+     * Suspends a world, scheduling the VM call with the given priority, e.g. USER
+     * for a suspend an operator asked for.
+     */
+    public CompletableFuture<Void> suspendWorld(String worldName, Priority priority) {
+        WorldInfo world = worlds.get(worldName).orElse(null);
+        if (world == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("World not found: " + worldName));
+        }
+        
+        while (true) {
+            WorldInfo.Lifecycle current = world.getLifecycle();
+            switch (current.getStatus()) {
+                case SUSPENDED:
+                    return CompletableFuture.completedFuture(null);
+                case SUSPENDING:
+                    return current.getOperation();
+                case RUNNING:
+                    CompletableFuture<Void> suspend = new CompletableFuture<>();
+                    if (world.beginTransition(current, WorldInfo.Status.SUSPENDING, suspend)) {
+                        startSuspend(world, suspend, priority);
+                        return suspend;
+                    }
+                    break; // lost the race, look again
+                default:
+                    return CompletableFuture.failedFuture(new IllegalStateException(
+                        "Cannot suspend world " + worldName + " while it is " + current.getStatus()));
+            }
+        }
+    }
+    
+    private void startSuspend(WorldInfo world, CompletableFuture<Void> suspend, Priority priority) {
+        String worldName = world.getName();
+        logger.info("Suspending world: {}", worldName);
+        
+        // Use the Freestyle VM service to suspend the server, unless another proxy already is
+        underLease(worldName, leaseTtl,
+            () -> scheduler.submit(priority, () -> vmManager.suspendServerAsync(world.getId())).thenRun(() -> {
+                if (world.finishTransition(suspend, WorldInfo.Status.SUSPENDED)) {
+                    record(world);
+                }
+            }),
+            settledAs(WorldInfo.Status.SUSPENDED),
+            change -> {
+                requireRemoteStatus(change, WorldInfo.Status.SUSPENDED);
+                if (world.finishTransition(suspend, WorldInfo.Status.SUSPENDED)) {
+                    persist(world);
+                }
+                return null;
+            })
+            .whenComplete((ignored, e) -> {
+                if (e != null) {
+                    world.finishTransition(suspend, WorldInfo.Status.RUNNING);
+                    Throwable cause = unwrap(e);
+                    logger.error("Failed to suspend world: {}", worldName, cause);
+                    suspend.completeExceptionally(new RuntimeException("Failed to suspend world: " + cause.getMessage(), cause));
+                    return;
+                }
                 
-                // Re-register with Velocity
-                ServerInfo serverInfo = new ServerInfo(worldName, world.getAddress());
-                RegisteredServer registeredServer = server.registerServer(serverInfo);
-                activeRegisteredServers.put(worldName, registeredServer);
+                logger.info("Successfully suspended world: {}", worldName);
+                suspend.complete(null);
+            });
+    }
+    
+    /**
+     * Resumes a suspended world. The returned future completes once the
+     * backend answers pings; concurrent calls for the same world share one resume.
+     * Resuming a world that is being suspended waits for the suspend and then
+     * resumes it; resuming a running world succeeds at once.
+     *
+     * Resumes are scheduled as interactive work, ahead of everything else.
+     */
+    public CompletableFuture<Void> resumeWorld(String worldName) {
+        WorldInfo world = worlds.get(worldName).orElse(null);
+        if (world == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("World not found: " + worldName));
+        }
+        
+        while (true) {
+            WorldInfo.Lifecycle current = world.getLifecycle();
+            switch (current.getStatus()) {
+                case RUNNING:
+                    return CompletableFuture.completedFuture(null);
+                case RESUMING:
+                    return current.getOperation();
+                case SUSPENDING:
+                    return current.getOperation()
+                        .handle((ignored, e) -> null)
+                        .thenCompose(ignored -> resumeWorld(worldName));
+                case SUSPENDED:
+                    CompletableFuture<Void> resume = new CompletableFuture<>();
+                    if (world.beginTransition(current, WorldInfo.Status.RESUMING, resume)) {
+                        startResume(world, resume);
+                        return resume;
+                    }
+                    break; // lost the race, look again
+                default:
+                    return CompletableFuture.failedFuture(new IllegalStateException(
+                        "Cannot resume world " + worldName + " while it is " + current.getStatus()));
+            }
+        }
+    }
+    
+    private void startResume(WorldInfo world, CompletableFuture<Void> resume) {
+        String worldName = world.getName();
+        logger.info("Resuming world: {}", worldName);
+        
+        Instant deadline = Instant.now().plus(config.getResumeReadyTimeout());
+        // Warm DNS for the world's domain while the VM starts
+        vmManager.getResolver().prefetch(world.getAddress());
+        // Taken only by the proxy that does the resume, and held until the world counts as running
+        AtomicReference<CompletableFuture<Runnable>> admission = new AtomicReference<>();
+        underLease(worldName, config.getResumeReadyTimeout(), () -> {
+                admission.set(admit(worldName, Priority.INTERACTIVE));
+                return admission.get().thenCompose(ignored -> {
+                        // Listen before starting, so the ready event cannot arrive first. Only the
+                        // start call takes a scheduler slot; waiting for the VM to boot does not.
+                        CompletableFuture<Optional<VmStatusChange>> ready = statusFeed.awaitStatus(world.getId(),
+                            VmStatusChange.Kind.READY, config.getResumeReadyTimeout());
+                        return scheduler.submit(Priority.INTERACTIVE, () -> vmManager.resumeServerAsync(world.getId()))
+                            .whenComplete((started, e) -> {
+                                if (e != null) {
+                                    ready.cancel(false);
+                                }
+                            })
+                            .thenCompose(started -> ready);
+                    })
+                    .thenCompose(change -> {
+                        // Without an event (feed down or slow) fall back to pinging until the deadline
+                        if (change.isPresent() && change.get().getKind() != VmStatusChange.Kind.READY) {
+                            throw new IllegalStateException("VM " + world.getId() + " is " + change.get().getKind()
+                                + (change.get().getReason() != null ? ": " + change.get().getReason() : ""));
+                        }
+                        
+                        // Re-register with Velocity if it is not registered anymore
+                        RegisteredServer registeredServer = server.getServer(worldName)
+                            .orElseGet(() -> server.registerServer(new ServerInfo(worldName, world.getAddress())));
+                        activeRegisteredServers.put(worldName, registeredServer);
+                        
+                        return awaitReachable(registeredServer, deadline);
+                    })
+                    .thenRun(() -> {
+                        if (world.finishTransition(resume, WorldInfo.Status.RUNNING)) {
+                            record(world);
+                        }
+                    });
+            }, settledAs(WorldInfo.Status.RUNNING), change -> {
+                requireRemoteStatus(change, WorldInfo.Status.RUNNING);
+                if (world.finishTransition(resume, WorldInfo.Status.RUNNING)) {
+                    persist(world);
+                }
+                return null;
+            })
+            .whenComplete((ignored, e) -> {
+                if (e != null) {
+                    world.finishTransition(resume, WorldInfo.Status.SUSPENDED);
+                    Throwable cause = unwrap(e);
+                    logger.error("Failed to resume world: {}", worldName, cause);
+                    resume.completeExceptionally(new RuntimeException("Failed to resume world: " + cause.getMessage(), cause));
+                    return;
+                }
                 
                 logger.info("Successfully resumed world: {}", worldName);
-                
-            } catch (Exception e) {
-                logger.error("Failed to resume world: {}", worldName, e);
-                throw new RuntimeException("Failed to resume world: " + e.getMessage(), e);
-            }
-        });
+                resume.complete(null);
+            })
+            .whenComplete((ignored, e) -> {
+                if (admission.get() != null) {
+                    release(admission.get());
+                }
+            });
     }
     
     /**
-     * Lists all available worlds
+     * Deletes a world and its VM for good, e.g. once it has gone unused for a long
+     * time. The world must be running or suspended; it is marked STOPPED while the
+     * VM is deleted so that nobody resumes or suspends it meanwhile. Players on the
+     * world are not moved.
+     */
+    public CompletableFuture<Void> deleteWorld(String worldName) {
+        WorldInfo world = worlds.get(worldName).orElse(null);
+        if (world == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("World not found: " + worldName));
+        }
+        if (!world.isManaged()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("World " + worldName + " is not backed by a VM"));
+        }
+        
+        WorldInfo.Status was = world.getStatus();
+        if ((was != WorldInfo.Status.RUNNING && was != WorldInfo.Status.SUSPENDED)
+                || !world.compareAndSetStatus(was, WorldInfo.Status.STOPPED)) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                "Cannot delete world " + worldName + " while it is " + world.getStatus()));
+        }
+        
+        logger.info("Deleting world {} (VM {})", worldName, world.getId());
+        return underLease(worldName, leaseTtl, () -> {
+                // Catching up on another proxy's delete has dropped the world already
+                if (worlds.get(worldName).orElse(null) != world) {
+                    logger.info("World {} was already deleted by another proxy", worldName);
+                    return CompletableFuture.completedFuture((Void) null);
+                }
+                return scheduler.submit(Priority.BACKGROUND, () -> vmManager.deleteServerAsync(world.getId())).thenRun(() -> {
+                    worlds.remove(world);
+                    recordRemoval(worldName);
+                    activeRegisteredServers.remove(worldName);
+                    server.getServer(worldName).ifPresent(registered -> server.unregisterServer(registered.getServerInfo()));
+                    logger.info("Deleted world {}", worldName);
+                });
+            },
+            // The removal has been applied by the time waiters hear of it
+            Objects::isNull, change -> (Void) null)
+            .whenComplete((ignored, e) -> {
+                if (e != null) {
+                    world.compareAndSetStatus(WorldInfo.Status.STOPPED, was);
+                    logger.error("Failed to delete world {}: {}", worldName, unwrap(e).getMessage());
+                }
+            });
+    }
+    
+    /**
+     * Ping a backend until it answers or the deadline passes.
+     */
+    private CompletableFuture<Void> awaitReachable(RegisteredServer registeredServer, Instant deadline) {
+        return registeredServer.ping()
+            .handle((ping, error) -> error == null)
+            .thenCompose(reachable -> {
+                if (reachable) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (Instant.now().isAfter(deadline)) {
+                    return CompletableFuture.failedFuture(new IllegalStateException(
+                        "Server " + registeredServer.getServerInfo().getName() + " did not come up in time"));
+                }
+                Executor delayed = CompletableFuture.delayedExecutor(REACHABILITY_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                return CompletableFuture.runAsync(() -> { }, delayed)
+                    .thenCompose(ignored -> awaitReachable(registeredServer, deadline));
+            });
+    }
+    
+    /**
+     * Lists all available worlds, sorted by name, as a copy. Code that scans the
+     * worlds often should query {@link #getCatalog()} instead.
      */
     public Collection<WorldInfo> listWorlds() {
         return new ArrayList<>(worlds.values());
     }
     
+    /**
+     * The indexed worlds, for filtered and paged listings.
+     */
+    public WorldCatalog getCatalog() {
+        return worlds;
+    }
+    
     /**
      * Gets information about a specific world
      */
     public Optional<WorldInfo> getWorld(String worldName) {
-        return Optional.ofNullable(worlds.get(worldName));
+        return worlds.get(worldName);
     }
     
     /**
      * Checks if a world exists
      */
     public boolean worldExists(String worldName) {
-        return worlds.containsKey(worldName);
+        return worlds.contains(worldName);
     }
     
     /**
-     * Checks if a world is suspended
+     * Checks if a world is suspended, or on its way down or up, i.e. whether a player
+     * joining it has to wait for a resume
      */
     public boolean isWorldSuspended(String worldName) {
-        return suspendedWorlds.contains(worldName);
+        return worlds.get(worldName).map(world -> world.getStatus().isAsleep()).orElse(false);
+    }
+    
+    public FreestyleVMManager getVMManager() {
+        return vmManager;
+    }
+    
+    /**
+     * Cap the number of running worlds. Operations already admitted are not affected.
+     */
+    public void setCapacityLimiter(CapacityLimiter capacity) {
+        this.capacity = capacity;
+    }
+    
+    public Optional<CapacityLimiter> getCapacityLimiter() {
+        return Optional.ofNullable(capacity);
+    }
+    
+    /**
+     * Compact the world registry if it has grown mostly stale. Called periodically.
+     */
+    public void compactRegistry() {
+        registry.compactIfNeeded();
+    }
+    
+    /**
+     * Flush and close the world registry. Called when the proxy shuts down.
+     */
+    public void close() {
+        statusFeed.removeListener(statusListener);
+        coordinator.close();
+        registry.close();
+    }
+    
+    /**
+     * Persist a world's current state and tell the other proxies about it.
+     */
+    private void record(WorldInfo world) {
+        persist(world);
+        publish(WorldChange.put(coordinator.getNodeId(), world));
+    }
+    
+    /**
+     * Persist a world's current state without telling anyone, e.g. for a change that
+     * came from another proxy. A failed write is logged rather than failing the
+     * operation, since the VM change itself has already happened.
+     */
+    private void persist(WorldInfo world) {
+        try {
+            registry.put(world);
+        } catch (RuntimeException e) {
+            logger.error("Failed to record world {} in the registry: {}", world.getName(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Forget a dropped world in the registry, here and on the other proxies.
+     */
+    private void recordRemoval(String worldName) {
+        try {
+            registry.remove(worldName);
+        } catch (RuntimeException e) {
+            logger.error("Failed to remove world {} from the registry: {}", worldName, e.getMessage());
+        }
+        publish(WorldChange.removed(coordinator.getNodeId(), worldName));
+    }
+    
+    private void publish(WorldChange change) {
+        try {
+            coordinator.publish(change);
+        } catch (RuntimeException e) {
+            logger.error("Failed to tell other proxies about the {}: {}", change, e.getMessage());
+        }
+    }
+    
+    /**
+     * Run an operation on a world under its cluster lease, so that only one proxy
+     * runs it. If another proxy holds the lease, wait for a change from it that
+     * settles the operation, and turn that into the result instead. Every maxWait
+     * without one, try for the lease again: a holder that is still at it keeps
+     * renewing, and if it died or gave up, this proxy takes over. The lease is
+     * given back once the operation has settled, so the operation should record
+     * its outcome before it completes.
+     *
+     * @param settles whether a world status published by another proxy, null for a
+     *                removal, is an outcome of the operation; others, such as status
+     *                feed updates that arrive late, are not waited for
+     */
+    private <T> CompletableFuture<T> underLease(String worldName, Duration maxWait, Supplier<CompletableFuture<T>> operation,
+                                                Predicate<WorldInfo.Status> settles, Function<WorldChange, T> fromRemote) {
+        // Listen before asking, so the holder's change cannot slip past in between
+        CompletableFuture<WorldChange> remote = awaitRemoteChange(worldName, settles, maxWait);
+        Optional<WorldCoordinator.Lease> lease;
+        try {
+            lease = coordinator.tryAcquire(worldName, leaseTtl);
+        } catch (RuntimeException e) {
+            remote.cancel(false);
+            return CompletableFuture.failedFuture(e);
+        }
+        if (lease.isEmpty()) {
+            logger.info("Another proxy is working on world {}, waiting for its result", worldName);
+            return remote.handle((change, e) -> {
+                if (e == null) {
+                    return CompletableFuture.completedFuture(fromRemote.apply(change));
+                }
+                if (unwrap(e) instanceof TimeoutException) {
+                    return underLease(worldName, maxWait, operation, settles, fromRemote);
+                }
+                return CompletableFuture.<T>failedFuture(unwrap(e));
+            }).thenCompose(next -> next);
+        }
+        
+        remote.cancel(false);
+        WorldCoordinator.Lease held = lease.get();
+        CompletableFuture<T> result;
+        try {
+            // Apply what the previous holder did before acting on the world
+            coordinator.catchUp();
+            result = operation.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        keepRenewed(held, result);
+        return result.whenComplete((value, e) -> coordinator.release(held));
+    }
+    
+    /**
+     * Renew a lease every third of its TTL until the operation it covers settles, so
+     * that e.g. a create waiting for capacity does not lose it halfway.
+     */
+    private void keepRenewed(WorldCoordinator.Lease lease, CompletableFuture<?> operation) {
+        long periodMillis = Math.max(1, leaseTtl.toMillis() / 3);
+        CompletableFuture.delayedExecutor(periodMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (operation.isDone()) {
+                return;
+            }
+            try {
+                if (!coordinator.renew(lease, leaseTtl)) {
+                    logger.warn("Lost the lease on world {} during an operation, another proxy may act on it too",
+                        lease.getWorldName());
+                    return;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to renew the lease on world {}: {}", lease.getWorldName(), e.getMessage());
+            }
+            keepRenewed(lease, operation);
+        });
+    }
+    
+    private CompletableFuture<WorldChange> awaitRemoteChange(String worldName, Predicate<WorldInfo.Status> settles,
+                                                             Duration maxWait) {
+        RemoteWaiter waiter = new RemoteWaiter(settles);
+        remoteWaiters.compute(worldName, (name, waiting) -> {
+            List<RemoteWaiter> list = waiting == null ? new ArrayList<>() : waiting;
+            list.add(waiter);
+            return list;
+        });
+        waiter.future.whenComplete((change, e) -> remoteWaiters.computeIfPresent(worldName, (name, waiting) -> {
+            waiting.remove(waiter);
+            return waiting.isEmpty() ? null : waiting;
+        }));
+        CompletableFuture.delayedExecutor(maxWait.toMillis(), TimeUnit.MILLISECONDS).execute(() ->
+            waiter.future.completeExceptionally(new TimeoutException("No result for world " + worldName
+                + " from another proxy within " + maxWait.getSeconds() + "s")));
+        return waiter.future;
+    }
+    
+    private static Predicate<WorldInfo.Status> settledAs(WorldInfo.Status expected) {
+        return status -> status == null || status == expected;
+    }
+    
+    private static final class RemoteWaiter {
+        private final Predicate<WorldInfo.Status> settles;
+        private final CompletableFuture<WorldChange> future = new CompletableFuture<>();
+        
+        private RemoteWaiter(Predicate<WorldInfo.Status> settles) {
+            this.settles = settles;
+        }
+    }
+    
+    private static void requireRemoteStatus(WorldChange change, WorldInfo.Status expected) {
+        WorldInfo.Status status = change.isRemoval() ? null : change.getWorld().getStatus();
+        if (status != expected) {
+            throw new IllegalStateException("World " + change.getWorldName() + " is "
+                + (status == null ? "deleted" : status) + " according to another proxy");
+        }
+    }
+    
+    /**
+     * Apply a registry change made by another proxy, then wake anyone here waiting
+     * on that world. New worlds are added and registered with Velocity, and removed
+     * ones dropped. Like status feed changes, status updates leave alone worlds
+     * that are in the middle of an operation here.
+     */
+    private void onRemoteChange(WorldChange change) {
+        String name = change.getWorldName();
+        WorldInfo.Status status = null;
+        try {
+            if (change.isRemoval()) {
+                applyRemoteRemoval(name);
+            } else {
+                WorldInfo remote = change.getWorld();
+                status = remote.getStatus();
+                applyRemoteUpdate(remote);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to apply {}: {}", change, e.getMessage());
+            return;
+        }
+        
+        WorldInfo.Status outcome = status;
+        List<RemoteWaiter> settled = new ArrayList<>();
+        remoteWaiters.computeIfPresent(name, (key, waiting) -> {
+            waiting.removeIf(waiter -> waiter.settles.test(outcome) && settled.add(waiter));
+            return waiting.isEmpty() ? null : waiting;
+        });
+        settled.forEach(waiter -> waiter.future.complete(change));
+    }
+    
+    private void applyRemoteUpdate(WorldInfo remote) {
+        String name = remote.getName();
+        WorldInfo local = worlds.get(name).orElse(null);
+        if (local != null && !local.isManaged()) {
+            logger.warn("Ignoring world {} from another proxy, a server of that name is configured here", name);
+            return;
+        }
+        
+        if (local == null || !local.getId().equals(remote.getId())) {
+            worlds.put(remote);
+            persist(remote);
+            RegisteredServer registered = server.getServer(name).orElse(null);
+            if (registered != null && !sameAddress(registered.getServerInfo().getAddress(), remote.getAddress())) {
+                server.unregisterServer(registered.getServerInfo());
+                registered = null;
+            }
+            activeRegisteredServers.put(name, registered != null
+                ? registered : server.registerServer(new ServerInfo(name, remote.getAddress())));
+            logger.info("World {} was {} by another proxy", name, local == null ? "added" : "replaced");
+            return;
+        }
+        
+        WorldInfo.Status was = local.getStatus();
+        WorldInfo.Status status = remote.getStatus();
+        if (was.isTransitional() || was == WorldInfo.Status.STOPPED || was == status) {
+            return;
+        }
+        if (local.compareAndSetStatus(was, status)) {
+            persist(local);
+            logger.info("World {} is {} according to another proxy, was {}", name, status, was);
+        }
+    }
+    
+    private void applyRemoteRemoval(String name) {
+        WorldInfo world = worlds.get(name).filter(WorldInfo::isManaged).orElse(null);
+        if (world == null || !worlds.remove(world)) {
+            return;
+        }
+        try {
+            registry.remove(name);
+        } catch (RuntimeException e) {
+            logger.error("Failed to remove world {} from the registry: {}", name, e.getMessage());
+        }
+        activeRegisteredServers.remove(name);
+        server.getServer(name).ifPresent(registered -> server.unregisterServer(registered.getServerInfo()));
+        logger.info("World {} was deleted by another proxy", name);
+    }
+    
+    /**
+     * Apply the results of a reconciliation pass. Managed worlds take the state the
+     * VM API reported (a stopped VM counts as suspended, since starting it wakes it up),
+     * and worlds whose VM no longer exists are dropped. Unmanaged servers are marked
+     * running or stopped by whether they answered a ping. Worlds that are being
+     * suspended, resumed or deleted right now are left to that operation. A result is
+     * only applied if the world is still the object that was checked and its status has
+     * not changed since the check was sent; otherwise the newer state stands until the
+     * next pass.
+     *
+     * Velocity's server list is then diffed against the worlds in one pass: missing
+     * servers are registered, dead ones unregistered and moved ones re-registered.
+     */
+    void applyReconciliation(Map<String, WorldReconciler.Checked<Optional<ServerInstance>>> observed,
+                             Map<String, WorldReconciler.Checked<Boolean>> reachable) {
+        Set<String> dead = new HashSet<>();
+        
+        observed.forEach((name, checked) -> {
+            WorldInfo world = checked.getWorld();
+            WorldInfo.Status was = checked.getStatus();
+            // A managed world is only STOPPED while it is being deleted
+            if (!checked.isCurrent(worlds.get(name)) || was.isTransitional() || was == WorldInfo.Status.STOPPED) {
+                return;
+            }
+            Optional<ServerInstance> instance = checked.getResult();
+            if (instance.isEmpty()) {
+                if (!worlds.remove(world)) {
+                    return;
+                }
+                logger.warn("VM {} for world {} no longer exists, dropping the world", world.getId(), name);
+                recordRemoval(name);
+                dead.add(name);
+                return;
+            }
+            
+            boolean running = instance.get().getState() == ServerInstance.State.RUNNING;
+            WorldInfo.Status status = running ? WorldInfo.Status.RUNNING : WorldInfo.Status.SUSPENDED;
+            if (was != status && world.compareAndSetStatus(was, status)) {
+                logger.info("World {} is {} according to the VM API, was {}", name, status, was);
+                record(world);
+            }
+        });
+        
+        reachable.forEach((name, checked) -> {
+            WorldInfo world = checked.getWorld();
+            WorldInfo.Status status = checked.getResult() ? WorldInfo.Status.RUNNING : WorldInfo.Status.STOPPED;
+            if (world.isManaged() || !checked.isCurrent(worlds.get(name))) {
+                return;
+            }
+            WorldInfo.Status was = checked.getStatus();
+            if (was != status && world.compareAndSetStatus(was, status)) {
+                logger.info("Server {} is {}, was {}", name, status, was);
+            }
+        });
+        
+        Map<String, RegisteredServer> registered = new HashMap<>();
+        for (RegisteredServer registeredServer : server.getAllServers()) {
+            registered.put(registeredServer.getServerInfo().getName(), registeredServer);
+        }
+        
+        for (String name : dead) {
+            RegisteredServer registeredServer = registered.get(name);
+            if (registeredServer != null) {
+                server.unregisterServer(registeredServer.getServerInfo());
+            }
+            activeRegisteredServers.remove(name);
+        }
+        
+        for (WorldInfo world : worlds.values()) {
+            if (!world.isManaged()) {
+                continue;
+            }
+            String name = world.getName();
+            RegisteredServer current = registered.get(name);
+            if (current != null && sameAddress(current.getServerInfo().getAddress(), world.getAddress())) {
+                continue;
+            }
+            if (current != null) {
+                logger.info("Server {} moved to {}, re-registering", name, world.getAddress());
+                server.unregisterServer(current.getServerInfo());
+            } else {
+                logger.info("Re-registering missing server {}", name);
+            }
+            activeRegisteredServers.put(name, server.registerServer(new ServerInfo(name, world.getAddress())));
+        }
+    }
+    
+    /**
+     * Apply a VM state change pushed by the status feed. Like reconciliation, it
+     * leaves alone worlds that are being suspended, resumed or deleted, since
+     * those operations set the status themselves when they finish, and ignores
+     * changes from before the world's last status change, e.g. a backlog delivered
+     * after the feed reconnects. A failed VM counts as suspended, so the next
+     * player to join starts it again.
+     */
+    private void onVmStatusChange(VmStatusChange change) {
+        WorldInfo world = worlds.getById(change.getId()).filter(WorldInfo::isManaged).orElse(null);
+        if (world == null) {
+            return;
+        }
+        
+        String name = world.getName();
+        WorldInfo.Status was = world.getStatus();
+        if (was.isTransitional() || was == WorldInfo.Status.STOPPED
+                || change.getAt().isBefore(world.getStatusChangedAt())) {
+            return;
+        }
+        
+        switch (change.getKind()) {
+            case DELETED:
+                logger.warn("VM {} for world {} was deleted, dropping the world", change.getId(), name);
+                if (worlds.remove(world)) {
+                    recordRemoval(name);
+                    activeRegisteredServers.remove(name);
+                    server.getServer(name).ifPresent(registered -> server.unregisterServer(registered.getServerInfo()));
+                }
+                return;
+            case FAILED:
+                logger.warn("VM {} for world {} failed: {}", change.getId(), name, change.getReason());
+                break;
+            default:
+                break;
+        }
+        
+        WorldInfo.Status status = change.getKind() == VmStatusChange.Kind.READY
+            ? WorldInfo.Status.RUNNING : WorldInfo.Status.SUSPENDED;
+        if (was != status && world.compareAndSetStatus(was, status)) {
+            logger.info("World {} is {} according to the VM status feed, was {}", name, status, was);
+            record(world);
+        }
+    }
+    
+    private static boolean sameAddress(InetSocketAddress a, InetSocketAddress b) {
+        return a.getPort() == b.getPort() && a.getHostString().equalsIgnoreCase(b.getHostString());
+    }
+    
+    private void restoreWorlds() {
+        for (WorldInfo world : registry.getLoadedWorlds()) {
+            String name = world.getName();
+            worlds.put(world);
+            
+            RegisteredServer registeredServer = server.getServer(name)
+                .orElseGet(() -> server.registerServer(new ServerInfo(name, world.getAddress())));
+            activeRegisteredServers.put(name, registeredServer);
+        }
+    }
+    
+    /**
+     * Wait for room under the cap on running worlds, if there is one.
+     */
+    private CompletableFuture<Runnable> admit(String worldName, Priority priority) {
+        CapacityLimiter limiter = capacity;
+        return limiter == null ? CompletableFuture.completedFuture(() -> { }) : limiter.admit(worldName, priority);
+    }
+    
+    /**
+     * Give back the slot of an admitted operation; nothing to do if it was not admitted.
+     */
+    private static void release(CompletableFuture<Runnable> admission) {
+        admission.thenAccept(Runnable::run);
+    }
+    
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
     }
     
     private void initializeExistingWorlds() {
         // Initialize with any existing servers from velocity config
         server.getAllServers().forEach(registeredServer -> {
             String name = registeredServer.getServerInfo().getName();
+            if (worlds.contains(name)) {
+                return;
+            }
             InetSocketAddress address = registeredServer.getServerInfo().getAddress();
             
             WorldInfo world = new WorldInfo(
@@ -249,8 +1256,10 @@ public class WorldManager {
                 address,
                 WorldInfo.Status.RUNNING
             );
+            // Not a VM we created, so reconciliation only pings it
+            world.setManaged(false);
             
-            worlds.put(name, world);
+            worlds.put(world);
             logger.info("Registered existing server as world: {}", name);
         });
     }
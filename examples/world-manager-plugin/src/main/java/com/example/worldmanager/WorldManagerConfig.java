@@ -0,0 +1,339 @@
+package com.example.worldmanager;
+
+import org.slf4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Settings for the world manager, read from world-manager.properties in the
+ * proxy's working directory. Every setting has a default, so the file is optional.
+ */
+public class WorldManagerConfig {
+
+    private static final String CONFIG_PATH = "world-manager.properties";
+
+    private final Properties properties;
+
+    public WorldManagerConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static WorldManagerConfig load(Logger logger) {
+        Properties properties = new Properties();
+        try (FileInputStream fis = new FileInputStream(CONFIG_PATH)) {
+            properties.load(fis);
+            logger.info("Loaded world manager configuration from {}", CONFIG_PATH);
+        } catch (IOException e) {
+            logger.info("No configuration file found at {}, using defaults", CONFIG_PATH);
+        }
+        return new WorldManagerConfig(properties);
+    }
+
+    /**
+     * Whether idle worlds are suspended automatically.
+     */
+    public boolean isIdleSuspendEnabled() {
+        return getBoolean("idle.enabled", true);
+    }
+
+    /**
+     * How long a world must stay empty before it is suspended.
+     */
+    public Duration getIdleGrace() {
+        return getSeconds("idle.graceSeconds", 300);
+    }
+
+    /**
+     * How long a world must have been running before it may be suspended again.
+     */
+    public Duration getMinUptime() {
+        return getSeconds("idle.minUptimeSeconds", 120);
+    }
+
+    public Duration getIdleCheckInterval() {
+        return getSeconds("idle.checkSeconds", 30);
+    }
+
+    /**
+     * Worlds that are never suspended for being idle, in addition to the proxy's try list.
+     */
+    public Set<String> getIdleExemptWorlds() {
+        return getList("idle.exempt");
+    }
+
+    /**
+     * How long a resumed world may take to answer pings before the resume counts as failed.
+     */
+    public Duration getResumeReadyTimeout() {
+        return getSeconds("resume.readyTimeoutSeconds", 60);
+    }
+
+    /**
+     * How long a player is held while the world they are joining wakes up.
+     */
+    public Duration getResumeWaitTimeout() {
+        return getSeconds("resume.waitTimeoutSeconds", 30);
+    }
+
+    /**
+     * How many players may wait on a single waking world before further joins are turned away.
+     */
+    public int getResumeMaxWaiters() {
+        return getInt("resume.maxWaiters", 50);
+    }
+
+    /**
+     * Whether created worlds are recorded on disk so they survive a proxy restart.
+     */
+    public boolean isRegistryEnabled() {
+        return getBoolean("registry.enabled", true);
+    }
+
+    public Path getRegistryPath() {
+        return Paths.get(properties.getProperty("registry.path", "world-registry.log").trim());
+    }
+
+    /**
+     * Whether each registry write is flushed to disk before the operation completes.
+     */
+    public boolean isRegistrySync() {
+        return getBoolean("registry.sync", true);
+    }
+
+    public Duration getRegistryCompactInterval() {
+        return getSeconds("registry.compactSeconds", 300);
+    }
+
+    /**
+     * How many forks of a batch are sent to the API at once.
+     */
+    public int getForkBatchConcurrency() {
+        return getInt("fork.batchConcurrency", 16);
+    }
+
+    /**
+     * Whether players are sent back to the world they were last on when they log in.
+     */
+    public boolean isLoginRoutingEnabled() {
+        return getBoolean("login.routeToLastWorld", true);
+    }
+
+    /**
+     * How long login waits for a player's last world to wake up before letting them
+     * in on the default server instead.
+     */
+    public Duration getLoginWaitTimeout() {
+        return getSeconds("login.waitSeconds", 10);
+    }
+
+    public Path getLastWorldsPath() {
+        return Paths.get(properties.getProperty("login.lastWorldsPath", "player-last-worlds.properties").trim());
+    }
+
+    /**
+     * Whether busy worlds are scaled out across forked replicas.
+     */
+    public boolean isShardingEnabled() {
+        return getBoolean("shard.enabled", true);
+    }
+
+    /**
+     * Players per member at which a shard group gets another replica.
+     */
+    public int getShardPlayerThreshold() {
+        return getInt("shard.playerThreshold", 40);
+    }
+
+    public int getShardMaxReplicas() {
+        return getInt("shard.maxReplicas", 3);
+    }
+
+    /**
+     * How long a replica must be empty before it is suspended again.
+     */
+    public Duration getShardReplicaIdle() {
+        return getSeconds("shard.replicaIdleSeconds", 60);
+    }
+
+    public Duration getShardCheckInterval() {
+        return getSeconds("shard.checkSeconds", 10);
+    }
+
+    /**
+     * Whether worlds are checked against the VM API at startup and periodically after.
+     */
+    public boolean isReconcileEnabled() {
+        return getBoolean("reconcile.enabled", true);
+    }
+
+    public Duration getReconcileInterval() {
+        return getSeconds("reconcile.intervalSeconds", 120);
+    }
+
+    /**
+     * How many worlds are checked at once during reconciliation.
+     */
+    public int getReconcileConcurrency() {
+        return getInt("reconcile.concurrency", 16);
+    }
+
+    public Duration getReconcileTimeout() {
+        return getSeconds("reconcile.timeoutSeconds", 10);
+    }
+
+    /**
+     * Whether server-list pings for worlds are answered from a cache rather than
+     * pinging (and possibly waking) their VMs.
+     */
+    public boolean isPingCacheEnabled() {
+        return getBoolean("ping.cacheEnabled", true);
+    }
+
+    /**
+     * How long a running world's ping response is reused before it is pinged again.
+     */
+    public Duration getPingTtl() {
+        return getSeconds("ping.ttlSeconds", 5);
+    }
+
+    public Duration getPingTimeout() {
+        return getSeconds("ping.timeoutSeconds", 2);
+    }
+
+    /**
+     * Whether VMs nothing refers to, and worlds unused for too long, are looked for periodically.
+     */
+    public boolean isReaperEnabled() {
+        return getBoolean("reaper.enabled", true);
+    }
+
+    /**
+     * Whether the reaper only logs what it would delete. On by default, so that a
+     * shared freestyle.vm.namePrefix shows up in the log before anything is deleted.
+     */
+    public boolean isReaperDryRun() {
+        return getBoolean("reaper.dryRun", true);
+    }
+
+    public Duration getReaperInterval() {
+        return getSeconds("reaper.intervalSeconds", 3600);
+    }
+
+    /**
+     * How long a VM must stay unreferenced before it counts as an orphan, so that
+     * VMs being forked right now are not mistaken for one.
+     */
+    public Duration getReaperOrphanGrace() {
+        return getSeconds("reaper.orphanGraceSeconds", 900);
+    }
+
+    /**
+     * How long a world may stay suspended before it is deleted; zero keeps worlds forever.
+     */
+    public Duration getReaperRetention() {
+        return Duration.ofDays(getInt("reaper.retentionDays", 30));
+    }
+
+    public int getReaperMaxDeletes() {
+        return getInt("reaper.maxDeletesPerPass", 20);
+    }
+
+    public Set<String> getReaperExemptWorlds() {
+        return getList("reaper.exemptWorlds");
+    }
+
+    /**
+     * How many managed worlds may run at once; zero means no cap. Starting another
+     * world at the cap suspends the least recently used running world without players.
+     */
+    public int getCapacityMaxRunning() {
+        return getInt("capacity.maxRunning", 0);
+    }
+
+    /**
+     * Worlds that are never suspended to make room for others.
+     */
+    public Set<String> getCapacityPinnedWorlds() {
+        return getList("capacity.pinned");
+    }
+
+    /**
+     * How proxies sharing these worlds coordinate: "none" for a proxy on its own,
+     * or "file" for proxies sharing coordination.path.
+     */
+    public String getCoordinationBackend() {
+        String backend = properties.getProperty("coordination.backend", "none").trim().toLowerCase(Locale.ROOT);
+        if (!backend.equals("none") && !backend.equals("file")) {
+            throw new IllegalStateException("Invalid value for coordination.backend: " + backend);
+        }
+        return backend;
+    }
+
+    public Path getCoordinationPath() {
+        return Paths.get(properties.getProperty("coordination.path", "world-coordination").trim());
+    }
+
+    /**
+     * This proxy's name among the proxies sharing the worlds; defaults to pid@host.
+     */
+    public String getCoordinationNodeId() {
+        String nodeId = properties.getProperty("coordination.nodeId");
+        return nodeId == null || nodeId.trim().isEmpty() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId.trim();
+    }
+
+    /**
+     * How long a world's lease lasts unless renewed. Proxies renew it while their
+     * operation runs, so this is how long others wait to take over from a proxy that died.
+     */
+    public Duration getCoordinationLeaseTtl() {
+        return getSeconds("coordination.leaseSeconds", 120);
+    }
+
+    public Duration getCoordinationPollInterval() {
+        return Duration.ofMillis(getInt("coordination.pollMillis", 250));
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    public Duration getSeconds(String key, int defaultSeconds) {
+        return Duration.ofSeconds(getInt(key, defaultSeconds));
+    }
+
+    public Set<String> getList(String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Arrays.stream(value.split(","))
+            .map(String::trim)
+            .filter(entry -> !entry.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
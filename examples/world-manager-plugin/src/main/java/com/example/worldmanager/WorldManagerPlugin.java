@@ -5,10 +5,13 @@ import org.slf4j.Logger;
 import com.google.inject.Inject;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Dependency;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.proxy.ProxyServer;
 
+import java.util.concurrent.TimeUnit;
+
 @Plugin(
         id = "world-manager-plugin",
         name = "World Manager",
@@ -24,6 +27,8 @@ public class WorldManagerPlugin {
     private final ProxyServer server;
     private final Logger logger;
     private WorldManager worldManager;
+    private WorldOccupancy occupancy;
+    private LastWorldStore lastWorlds;
 
     @Inject
     public WorldManagerPlugin(ProxyServer server, Logger logger) {
@@ -35,16 +40,104 @@ public class WorldManagerPlugin {
     public void onProxyInitialization(ProxyInitializeEvent event) {
         logger.info("WorldManagerPlugin has been initialized!");
 
+        WorldManagerConfig config = WorldManagerConfig.load(logger);
+
         // Initialize the world manager
-        this.worldManager = new WorldManager(server, logger);
+        this.worldManager = new WorldManager(server, logger, config);
+
+        // Track players per world so idle worlds can be suspended
+        this.occupancy = new WorldOccupancy(worldManager);
+        server.getEventManager().register(this, occupancy);
+
+        if (config.getCapacityMaxRunning() > 0) {
+            worldManager.setCapacityLimiter(new CapacityLimiter(worldManager, occupancy, config, logger));
+            logger.info("At most {} worlds will run at once, idle ones are suspended to make room",
+                config.getCapacityMaxRunning());
+        }
+
+        // Wake suspended worlds when players try to join them
+        server.getEventManager().register(this, new ResumeOnConnectListener(worldManager, config, logger));
+
+        // Answer server-list pings for worlds from cache so they never wake a suspended VM
+        if (config.isPingCacheEnabled()) {
+            server.getEventManager().register(this, new WorldPingCache(server, worldManager, config, logger));
+        }
+
+        if (config.isLoginRoutingEnabled()) {
+            this.lastWorlds = LastWorldStore.load(config.getLastWorldsPath(), logger);
+            server.getEventManager().register(this, new LastWorldRouter(server, worldManager, lastWorlds, config, logger));
+            server.getScheduler().buildTask(this, lastWorlds::save)
+                .repeat(60, TimeUnit.SECONDS)
+                .schedule();
+        }
+
+        if (config.isShardingEnabled()) {
+            ShardManager shardManager = new ShardManager(server, worldManager, occupancy, config, logger);
+            server.getEventManager().register(this, shardManager);
+            long checkSeconds = config.getShardCheckInterval().getSeconds();
+            server.getScheduler().buildTask(this, shardManager::tick)
+                .delay(checkSeconds, TimeUnit.SECONDS)
+                .repeat(checkSeconds, TimeUnit.SECONDS)
+                .schedule();
+        }
+
+        if (config.isIdleSuspendEnabled()) {
+            IdleSuspendScheduler idleSuspendScheduler = new IdleSuspendScheduler(server, worldManager, occupancy, config, logger);
+            long checkSeconds = config.getIdleCheckInterval().getSeconds();
+            server.getScheduler().buildTask(this, idleSuspendScheduler::tick)
+                .delay(checkSeconds, TimeUnit.SECONDS)
+                .repeat(checkSeconds, TimeUnit.SECONDS)
+                .schedule();
+            logger.info("Idle worlds will be suspended after {}s without players", config.getIdleGrace().getSeconds());
+        }
+
+        if (config.isReconcileEnabled()) {
+            // First pass runs right away, off the startup thread
+            WorldReconciler reconciler = new WorldReconciler(server, worldManager, worldManager.getVMManager(), config, logger);
+            server.getScheduler().buildTask(this, reconciler::reconcile)
+                .repeat(config.getReconcileInterval().getSeconds(), TimeUnit.SECONDS)
+                .schedule();
+        }
+
+        if (config.isReaperEnabled()) {
+            WorldReaper reaper = new WorldReaper(server, worldManager, worldManager.getVMManager(), config, logger);
+            long reapSeconds = config.getReaperInterval().getSeconds();
+            server.getScheduler().buildTask(this, reaper::reap)
+                .delay(reapSeconds, TimeUnit.SECONDS)
+                .repeat(reapSeconds, TimeUnit.SECONDS)
+                .schedule();
+            if (config.isReaperDryRun()) {
+                logger.info("VM reaper is in dry-run mode, set reaper.dryRun=false to let it delete VMs");
+            }
+        }
+
+        long compactSeconds = config.getRegistryCompactInterval().getSeconds();
+        server.getScheduler().buildTask(this, worldManager::compactRegistry)
+            .delay(compactSeconds, TimeUnit.SECONDS)
+            .repeat(compactSeconds, TimeUnit.SECONDS)
+            .schedule();
 
         logger.info("WorldManager initialized successfully!");
     }
 
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (lastWorlds != null) {
+            lastWorlds.save();
+        }
+        if (worldManager != null) {
+            worldManager.close();
+        }
+    }
+
     public WorldManager getWorldManager() {
         return worldManager;
     }
 
+    public WorldOccupancy getOccupancy() {
+        return occupancy;
+    }
+
     public static WorldManager getWorldManagerInstance(ProxyServer server) {
         return server.getPluginManager()
                 .getPlugin("world-manager-plugin")
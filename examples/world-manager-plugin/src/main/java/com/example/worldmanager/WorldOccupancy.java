@@ -0,0 +1,78 @@
+package com.example.worldmanager;
+
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live player counts per world, kept from Velocity connect and disconnect events.
+ * Each player is tracked against the world they are currently on, so a switch
+ * moves them from one count to the other.
+ */
+public class WorldOccupancy {
+
+    private final WorldManager worldManager;
+    private final Map<UUID, String> playerWorlds = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final Map<String, Instant> emptySince = new ConcurrentHashMap<>();
+
+    public WorldOccupancy(WorldManager worldManager) {
+        this.worldManager = worldManager;
+    }
+
+    @Subscribe
+    public void onServerConnected(ServerConnectedEvent event) {
+        String worldName = event.getServer().getServerInfo().getName();
+        String previous = playerWorlds.put(event.getPlayer().getUniqueId(), worldName);
+        if (worldName.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            leave(previous);
+        }
+        join(worldName);
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        String previous = playerWorlds.remove(event.getPlayer().getUniqueId());
+        if (previous != null) {
+            leave(previous);
+        }
+    }
+
+    /**
+     * Number of players currently on a world.
+     */
+    public int getPlayerCount(String worldName) {
+        AtomicInteger count = counts.get(worldName);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * When a world last became empty, or null if it has players or was never joined.
+     */
+    public Instant getEmptySince(String worldName) {
+        return emptySince.get(worldName);
+    }
+
+    private void join(String worldName) {
+        counts.computeIfAbsent(worldName, name -> new AtomicInteger()).incrementAndGet();
+        emptySince.remove(worldName);
+        worldManager.getWorld(worldName).ifPresent(WorldInfo::markActive);
+    }
+
+    private void leave(String worldName) {
+        AtomicInteger count = counts.computeIfAbsent(worldName, name -> new AtomicInteger());
+        if (count.updateAndGet(value -> Math.max(0, value - 1)) == 0) {
+            emptySince.put(worldName, Instant.now());
+        }
+        worldManager.getWorld(worldName).ifPresent(WorldInfo::markActive);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.worldmanager;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import net.kyori.adventure.text.Component;
+import org.slf4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers server-list pings for worlds without waking their VMs.
+ *
+ * Each world's last ping response (MOTD, version, player counts, favicon) is
+ * kept. A running world is pinged again once its response is older than
+ * ping.ttlSeconds, with concurrent pings sharing one request. A world that is
+ * suspended, or on its way down or up, is never pinged; it is answered from
+ * the cache with no players online.
+ *
+ * Pings to the proxy through a forced host that leads to a world are answered
+ * with that world's MOTD and player counts the same way.
+ */
+public class WorldPingCache {
+
+    private final ProxyServer server;
+    private final WorldManager worldManager;
+    private final Logger logger;
+    private final long ttlNanos;
+    private final Duration timeout;
+    private final Map<String, CachedPing> pings = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Optional<ServerPing>>> inFlight = new ConcurrentHashMap<>();
+
+    public WorldPingCache(ProxyServer server, WorldManager worldManager, WorldManagerConfig config, Logger logger) {
+        this.server = server;
+        this.worldManager = worldManager;
+        this.logger = logger;
+        this.ttlNanos = config.getPingTtl().toNanos();
+        this.timeout = config.getPingTimeout();
+    }
+
+    /**
+     * A world's ping response: fresh or cached for a running world, cached for a
+     * sleeping one. Empty if the world is unknown or has never answered.
+     */
+    public CompletableFuture<Optional<ServerPing>> ping(String worldName) {
+        Optional<WorldInfo> world = worldManager.getWorld(worldName);
+        if (world.isEmpty()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        CachedPing cached = pings.get(worldName);
+        if (world.get().isManaged() && world.get().getStatus().isAsleep()) {
+            return CompletableFuture.completedFuture(Optional.ofNullable(cached).map(entry -> asleep(entry.ping)));
+        }
+        if (cached != null && System.nanoTime() - cached.fetchedAt < ttlNanos) {
+            return CompletableFuture.completedFuture(Optional.of(cached.ping));
+        }
+
+        CompletableFuture<Optional<ServerPing>> fetch = new CompletableFuture<>();
+        CompletableFuture<Optional<ServerPing>> existing = inFlight.putIfAbsent(worldName, fetch);
+        if (existing != null) {
+            return existing;
+        }
+        fetch(worldName, cached).whenComplete((ping, e) -> {
+            inFlight.remove(worldName, fetch);
+            fetch.complete(ping);
+        });
+        return fetch;
+    }
+
+    /**
+     * The cached response without pinging anything.
+     */
+    public Optional<ServerPing> getCached(String worldName) {
+        CachedPing cached = pings.get(worldName);
+        return cached == null ? Optional.empty() : Optional.of(cached.ping);
+    }
+
+    /**
+     * Show the world behind a forced host in the server list instead of the proxy's own MOTD.
+     */
+    @Subscribe
+    public EventTask onProxyPing(ProxyPingEvent event) {
+        Optional<String> worldName = event.getConnection().getVirtualHost().flatMap(this::forcedWorld);
+        if (worldName.isEmpty()) {
+            return null;
+        }
+
+        CompletableFuture<Void> answered = ping(worldName.get()).thenAccept(ping -> {
+            ServerPing.Builder builder = event.getPing().asBuilder();
+            if (ping.isPresent()) {
+                ServerPing world = ping.get();
+                builder.description(world.getDescriptionComponent());
+                world.getPlayers().ifPresent(players -> builder
+                    .onlinePlayers(players.getOnline())
+                    .maximumPlayers(players.getMax())
+                    .clearSamplePlayers());
+                world.getFavicon().ifPresent(builder::favicon);
+            } else if (worldManager.isWorldSuspended(worldName.get())) {
+                builder.description(Component.text(worldName.get() + " is asleep, join to wake it up"))
+                    .onlinePlayers(0)
+                    .clearSamplePlayers();
+            } else {
+                return;
+            }
+            event.setPing(builder.build());
+        });
+        return EventTask.resumeWhenComplete(answered);
+    }
+
+    private CompletableFuture<Optional<ServerPing>> fetch(String worldName, CachedPing stale) {
+        Optional<RegisteredServer> registered = server.getServer(worldName);
+        if (registered.isEmpty()) {
+            return CompletableFuture.completedFuture(Optional.ofNullable(stale).map(entry -> entry.ping));
+        }
+
+        return registered.get().ping()
+            .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .handle((ping, e) -> {
+                if (e != null) {
+                    // Serve the last known response rather than nothing while a backend is slow
+                    logger.debug("Ping of world {} failed: {}", worldName, e.getMessage());
+                    return Optional.ofNullable(stale).map(entry -> entry.ping);
+                }
+                pings.put(worldName, new CachedPing(ping, System.nanoTime()));
+                return Optional.of(ping);
+            });
+    }
+
+    private Optional<String> forcedWorld(InetSocketAddress virtualHost) {
+        List<String> servers = server.getConfiguration().getForcedHosts()
+            .get(virtualHost.getHostString().toLowerCase(Locale.ROOT));
+        if (servers == null) {
+            return Optional.empty();
+        }
+        return servers.stream().filter(worldManager::worldExists).findFirst();
+    }
+
+    private static ServerPing asleep(ServerPing ping) {
+        return ping.asBuilder().onlinePlayers(0).clearSamplePlayers().build();
+    }
+
+    private static final class CachedPing {
+        private final ServerPing ping;
+        private final long fetchedAt;
+
+        private CachedPing(ServerPing ping, long fetchedAt) {
+            this.ping = ping;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.worldmanager;
+
+import com.example.velocityplugin.vm.FreestyleVMManager;
+import com.example.velocityplugin.vm.OperationScheduler;
+import com.example.velocityplugin.vm.ServerInstance;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.net.InetSocketAddress;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deletes VMs that nothing uses any more, so they do not eat into the VM quota.
+ *
+ * Each pass lists the VMs on the account and compares them with the known
+ * worlds. A VM this proxy forked (by its freestyle.vm.namePrefix) that is not
+ * a world, a base VM or a pooled VM, and does not serve the address of a
+ * server in velocity.toml or registered with Velocity, is an orphan, e.g.
+ * left behind by a fork whose world could not be registered; it is deleted
+ * once it has been seen unreferenced for reaper.orphanGraceSeconds. VMs
+ * created by anything else on the same API key are never touched.
+ * Worlds that have been suspended for longer than reaper.retentionDays are
+ * deleted along with their VM. At most reaper.maxDeletesPerPass deletes are
+ * started per pass.
+ *
+ * In dry-run mode (the default) a pass only logs what it would delete.
+ */
+public class WorldReaper {
+
+    private final ProxyServer server;
+    private final WorldManager worldManager;
+    private final FreestyleVMManager vmManager;
+    private final Logger logger;
+    private final boolean dryRun;
+    private final Duration orphanGrace;
+    private final Duration retention;
+    private final int maxDeletes;
+    private final Set<String> exemptWorlds;
+    private final Map<String, Instant> unreferencedSince = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public WorldReaper(ProxyServer server, WorldManager worldManager, FreestyleVMManager vmManager,
+                       WorldManagerConfig config, Logger logger) {
+        this.server = server;
+        this.worldManager = worldManager;
+        this.vmManager = vmManager;
+        this.logger = logger;
+        this.dryRun = config.isReaperDryRun();
+        this.orphanGrace = config.getReaperOrphanGrace();
+        this.retention = config.getReaperRetention();
+        this.maxDeletes = Math.max(0, config.getReaperMaxDeletes());
+        this.exemptWorlds = config.getReaperExemptWorlds();
+    }
+
+    public CompletableFuture<Void> reap() {
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("Skipping reaper pass, previous pass still running");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return vmManager.getScheduler().submit(OperationScheduler.Priority.BACKGROUND, vmManager::listServersAsync)
+            .thenCompose(this::reap)
+            .whenComplete((ignored, e) -> {
+                running.set(false);
+                if (e != null) {
+                    logger.warn("Reaper pass failed: {}", e.getMessage());
+                }
+            });
+    }
+
+    private CompletableFuture<Void> reap(List<ServerInstance> vms) {
+        Instant now = Instant.now();
+        Set<String> referenced = new HashSet<>(vmManager.getBaseVmIds());
+        for (WorldInfo world : worldManager.getCatalog().values()) {
+            if (world.isManaged()) {
+                referenced.add(world.getId());
+            }
+        }
+
+        Set<String> serverHosts = serverHosts();
+
+        List<ServerInstance> orphans = new ArrayList<>();
+        Set<String> listed = new HashSet<>();
+        for (ServerInstance vm : vms) {
+            listed.add(vm.getId());
+            if (!vmManager.isForkedHere(vm) || referenced.contains(vm.getId())
+                    || vmManager.getWarmPool().isPooled(vm.getId()) || serves(vm, serverHosts)) {
+                unreferencedSince.remove(vm.getId());
+                continue;
+            }
+            Instant since = unreferencedSince.computeIfAbsent(vm.getId(), id -> now);
+            if (!since.plus(orphanGrace).isAfter(now)) {
+                orphans.add(vm);
+            }
+        }
+        unreferencedSince.keySet().retainAll(listed);
+
+        List<WorldInfo> abandoned = new ArrayList<>();
+        if (!retention.isZero()) {
+            WorldCatalog.Query suspended = WorldCatalog.Query.all().withStatus(WorldInfo.Status.SUSPENDED);
+            for (WorldInfo world : worldManager.getCatalog().matching(suspended)) {
+                if (world.isManaged() && world.getStatus() == WorldInfo.Status.SUSPENDED
+                        && !exemptWorlds.contains(world.getName())
+                        && world.getStatusChangedAt().plus(retention).isBefore(now)) {
+                    abandoned.add(world);
+                }
+            }
+        }
+
+        if (orphans.isEmpty() && abandoned.isEmpty()) {
+            logger.debug("Reaper found nothing to delete among {} VMs", vms.size());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<Void>> deletes = new ArrayList<>();
+        for (ServerInstance orphan : orphans) {
+            if (deletes.size() >= maxDeletes) {
+                break;
+            }
+            if (dryRun) {
+                logger.info("Reaper (dry run) would delete orphaned VM {} ({})", orphan.getId(), orphan.getName());
+                continue;
+            }
+            logger.info("Reaper deleting orphaned VM {} ({})", orphan.getId(), orphan.getName());
+            deletes.add(vmManager.getScheduler().submit(OperationScheduler.Priority.BACKGROUND,
+                    () -> vmManager.deleteServerAsync(orphan.getId()))
+                .thenRun(() -> unreferencedSince.remove(orphan.getId()))
+                .exceptionally(e -> {
+                    logger.warn("Reaper failed to delete VM {}: {}", orphan.getId(), e.getMessage());
+                    return null;
+                }));
+        }
+        for (WorldInfo world : abandoned) {
+            if (deletes.size() >= maxDeletes) {
+                break;
+            }
+            if (dryRun) {
+                logger.info("Reaper (dry run) would delete world {}, suspended since {}", world.getName(), world.getStatusChangedAt());
+                continue;
+            }
+            logger.info("Reaper deleting world {}, suspended since {}", world.getName(), world.getStatusChangedAt());
+            deletes.add(worldManager.deleteWorld(world.getName()).exceptionally(e -> null));
+        }
+
+        logger.info("Reaper pass over {} VMs: {} orphaned, {} abandoned worlds{}", vms.size(), orphans.size(),
+            abandoned.size(), dryRun ? " (dry run, nothing deleted)" : ", deleting " + deletes.size());
+        return CompletableFuture.allOf(deletes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Host names of every server players can be sent to, from velocity.toml and
+     * registered since, e.g. the lobby.
+     */
+    private Set<String> serverHosts() {
+        Set<String> hosts = new HashSet<>();
+        for (RegisteredServer registered : server.getAllServers()) {
+            hosts.add(registered.getServerInfo().getAddress().getHostString().toLowerCase(Locale.ROOT));
+        }
+        for (String address : server.getConfiguration().getServers().values()) {
+            String host = address.trim();
+            int port = host.lastIndexOf(':');
+            if (port > 0 && host.indexOf(':') == port) {
+                host = host.substring(0, port);
+            }
+            hosts.add(host.toLowerCase(Locale.ROOT));
+        }
+        return hosts;
+    }
+
+    private static boolean serves(ServerInstance vm, Set<String> serverHosts) {
+        InetSocketAddress address = vm.getAddress();
+        return address != null && serverHosts.contains(address.getHostString().toLowerCase(Locale.ROOT));
+    }
+}
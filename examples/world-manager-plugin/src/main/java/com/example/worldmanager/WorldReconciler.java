@@ -0,0 +1,164 @@
+package com.example.worldmanager;
+
+import com.example.velocityplugin.vm.FreestyleVMManager;
+import com.example.velocityplugin.vm.OperationScheduler;
+import com.example.velocityplugin.vm.ServerInstance;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks every known world against reality: managed worlds against the VM API,
+ * servers from velocity.toml by pinging them. The checks run concurrently with
+ * at most reconcile.concurrency in flight, and the results are applied in one
+ * batch by {@link WorldManager}. Each result carries the world it was taken
+ * for and that world's lifecycle when the check was sent, so a world that was
+ * replaced or changed status while it was being checked is left alone.
+ *
+ * Runs once at startup and then every reconcile.intervalSeconds. A pass that is
+ * still running when the next one is due is not overlapped.
+ */
+public class WorldReconciler {
+
+    private final ProxyServer server;
+    private final WorldManager worldManager;
+    private final FreestyleVMManager vmManager;
+    private final Logger logger;
+    private final int concurrency;
+    private final Duration timeout;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public WorldReconciler(ProxyServer server, WorldManager worldManager, FreestyleVMManager vmManager,
+                           WorldManagerConfig config, Logger logger) {
+        this.server = server;
+        this.worldManager = worldManager;
+        this.vmManager = vmManager;
+        this.logger = logger;
+        this.concurrency = Math.max(1, config.getReconcileConcurrency());
+        this.timeout = config.getReconcileTimeout();
+    }
+
+    public CompletableFuture<Void> reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("Skipping reconciliation, previous pass still running");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long start = System.nanoTime();
+        Collection<WorldInfo> worlds = worldManager.listWorlds();
+        Queue<WorldInfo> pending = new ConcurrentLinkedQueue<>(worlds);
+        Map<String, Checked<Optional<ServerInstance>>> observed = new ConcurrentHashMap<>();
+        Map<String, Checked<Boolean>> reachable = new ConcurrentHashMap<>();
+        AtomicInteger failed = new AtomicInteger();
+
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(concurrency, Math.max(1, worlds.size()))];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = drain(pending, observed, reachable, failed);
+        }
+
+        return CompletableFuture.allOf(workers)
+            .thenRun(() -> {
+                worldManager.applyReconciliation(observed, reachable);
+                logger.info("Reconciled {} worlds in {}ms ({} could not be checked)",
+                    worlds.size(), (System.nanoTime() - start) / 1_000_000, failed.get());
+            })
+            .whenComplete((ignored, e) -> {
+                running.set(false);
+                if (e != null) {
+                    logger.warn("World reconciliation failed: {}", e.getMessage());
+                }
+            });
+    }
+
+    /**
+     * One of the concurrent workers: check worlds from the queue until it is empty.
+     */
+    private CompletableFuture<Void> drain(Queue<WorldInfo> pending, Map<String, Checked<Optional<ServerInstance>>> observed,
+                                          Map<String, Checked<Boolean>> reachable, AtomicInteger failed) {
+        WorldInfo world = pending.poll();
+        if (world == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return check(world, observed, reachable)
+            .handle((ignored, e) -> {
+                if (e != null) {
+                    failed.incrementAndGet();
+                    logger.debug("Could not check world {}: {}", world.getName(), e.getMessage());
+                }
+                return null;
+            })
+            .thenCompose(ignored -> drain(pending, observed, reachable, failed));
+    }
+
+    private CompletableFuture<Void> check(WorldInfo world, Map<String, Checked<Optional<ServerInstance>>> observed,
+                                          Map<String, Checked<Boolean>> reachable) {
+        String name = world.getName();
+        WorldInfo.Lifecycle lifecycle = world.getLifecycle();
+        if (world.isManaged()) {
+            return vmManager.getScheduler().submit(OperationScheduler.Priority.BACKGROUND,
+                    () -> vmManager.refreshServerAsync(world.getId()))
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenAccept(instance -> observed.put(name, new Checked<>(world, lifecycle, instance)));
+        }
+
+        Optional<RegisteredServer> registeredServer = server.getServer(name);
+        if (registeredServer.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return registeredServer.get().ping()
+            .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .handle((ping, e) -> {
+                reachable.put(name, new Checked<>(world, lifecycle, e == null));
+                return null;
+            });
+    }
+
+    /**
+     * What a check found, with the world it was made for and the lifecycle (status
+     * and when it was entered) that world had when the check was sent.
+     */
+    static final class Checked<T> {
+        private final WorldInfo world;
+        private final WorldInfo.Lifecycle lifecycle;
+        private final T result;
+
+        private Checked(WorldInfo world, WorldInfo.Lifecycle lifecycle, T result) {
+            this.world = world;
+            this.lifecycle = lifecycle;
+            this.result = result;
+        }
+
+        WorldInfo getWorld() {
+            return world;
+        }
+
+        WorldInfo.Status getStatus() {
+            return lifecycle.getStatus();
+        }
+
+        T getResult() {
+            return result;
+        }
+
+        /**
+         * Whether the world registered under the name now is still the one checked,
+         * and its status has not changed since the check was sent.
+         */
+        boolean isCurrent(Optional<WorldInfo> current) {
+            return current.isPresent() && current.get() == world && world.getLifecycle() == lifecycle;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.worldmanager;
+
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Durable record of the worlds the manager has created, so that a proxy
+ * restart does not forget forked VMs.
+ *
+ * The registry is an append-only log in a memory-mapped file. Every change
+ * appends the full state of one world (or a removal); on startup the log is
+ * replayed and the last record per world wins. Each record carries a CRC32, and
+ * replay stops at the first torn or corrupt record, so a crash mid-write loses
+ * at most that write. When most of the log is superseded records it is
+ * compacted by writing the live records to a new file and atomically
+ * replacing the old one.
+ *
+ * Record layout: int length, int crc32(payload), payload. The length is
+ * written last, so a record is only visible once it is complete. Fields added
+ * later are appended to the end of the payload and are optional on replay.
+ */
+public class WorldRegistry implements AutoCloseable {
+
+    private static final int MAGIC = 0x46574C47; // "FWLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int INITIAL_MAP_BYTES = 64 * 1024;
+    private static final int COMPACT_MIN_BYTES = 64 * 1024;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private final Path path;
+    private final Logger logger;
+    private final boolean sync;
+    private final Map<String, byte[]> live = new LinkedHashMap<>();
+    private final Map<String, WorldInfo> loaded = new LinkedHashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+
+    private WorldRegistry(Path path, Logger logger, boolean sync) {
+        this.path = path;
+        this.logger = logger;
+        this.sync = sync;
+    }
+
+    /**
+     * Open (or create) the registry at a path and replay it.
+     *
+     * @param sync whether every append is flushed to disk before returning, which
+     *             survives power loss and not just a crash of the proxy
+     */
+    public static WorldRegistry open(Path path, Logger logger, boolean sync) throws IOException {
+        WorldRegistry registry = new WorldRegistry(path, logger, sync);
+        long start = System.nanoTime();
+        registry.replay();
+        logger.info("Loaded {} worlds from {} in {}ms", registry.loaded.size(), path,
+            (System.nanoTime() - start) / 1_000_000);
+        registry.compactIfNeeded();
+        return registry;
+    }
+
+    /**
+     * A registry that keeps nothing on disk, e.g. when persistence is disabled.
+     */
+    public static WorldRegistry inMemory(Logger logger) {
+        return new WorldRegistry(null, logger, false);
+    }
+
+    /**
+     * Worlds as they were recorded when the registry was opened.
+     */
+    public synchronized Collection<WorldInfo> getLoadedWorlds() {
+        return new ArrayList<>(loaded.values());
+    }
+
+    /**
+     * Record the current state of a world, replacing any earlier record for it.
+     */
+    public synchronized void put(WorldInfo world) {
+        byte[] payload = encode(world);
+        append(world.getName(), payload);
+        byte[] previous = live.put(world.getName(), payload);
+        liveBytes += payload.length + RECORD_HEADER_BYTES - (previous == null ? 0 : previous.length + RECORD_HEADER_BYTES);
+    }
+
+    /**
+     * Forget a world, e.g. after its VM was deleted.
+     */
+    public synchronized void remove(String name) {
+        byte[] previous = live.remove(name);
+        if (previous == null) {
+            return;
+        }
+        liveBytes -= previous.length + RECORD_HEADER_BYTES;
+        append(name, encodeRemove(name));
+    }
+
+    /**
+     * Compact the log when superseded records take up more space than live ones.
+     * Called after opening and periodically by the plugin.
+     */
+    public synchronized boolean compactIfNeeded() {
+        if (channel == null) {
+            return false;
+        }
+        long garbage = writePosition - HEADER_BYTES - liveBytes;
+        if (writePosition < COMPACT_MIN_BYTES || garbage <= liveBytes) {
+            return false;
+        }
+        try {
+            compact();
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to compact world registry {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close world registry {}: {}", path, e.getMessage());
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    private void replay() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("World registry is too large: " + size + " bytes");
+        }
+        map(Math.max(INITIAL_MAP_BYTES, (int) size));
+
+        if (size < HEADER_BYTES || buffer.getInt(0) == 0) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            writePosition = HEADER_BYTES;
+            return;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(path + " is not a world registry (or has an unsupported version)");
+        }
+
+        int position = HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+                logger.warn("World registry {} has a torn record at offset {}, ignoring the rest", path, position);
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            slice(position + RECORD_HEADER_BYTES).get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                logger.warn("World registry {} has a corrupt record at offset {}, ignoring the rest", path, position);
+                break;
+            }
+
+            apply(payload);
+            position += RECORD_HEADER_BYTES + length;
+        }
+
+        writePosition = position;
+        // Clear anything after the last good record so it cannot be mistaken for a record later
+        for (int i = writePosition; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                for (int j = i; j < buffer.capacity(); j++) {
+                    buffer.put(j, (byte) 0);
+                }
+                buffer.force();
+                break;
+            }
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        String name = in.readUTF();
+        byte[] previous;
+        if (op == OP_REMOVE) {
+            previous = live.remove(name);
+            loaded.remove(name);
+        } else if (op == OP_PUT) {
+            previous = live.put(name, payload);
+            loaded.put(name, decode(name, in));
+            liveBytes += payload.length + RECORD_HEADER_BYTES;
+        } else {
+            throw new IOException("Unknown world registry record type " + op);
+        }
+        if (previous != null) {
+            liveBytes -= previous.length + RECORD_HEADER_BYTES;
+        }
+    }
+
+    private void append(String name, byte[] payload) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            int needed = writePosition + RECORD_HEADER_BYTES + payload.length + 4;
+            if (needed > buffer.capacity()) {
+                map(Math.max(needed, buffer.capacity() * 2));
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.putInt(writePosition + 4, (int) crc.getValue());
+            slice(writePosition + RECORD_HEADER_BYTES).put(payload);
+            buffer.putInt(writePosition, payload.length);
+            writePosition += RECORD_HEADER_BYTES + payload.length;
+            if (sync) {
+                buffer.force();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to record world " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The compacted log is written and mapped through its own channel, which stays
+     * valid across the rename. The registry only switches to it once the move has
+     * succeeded; until then, and on any failure, it keeps appending to the original.
+     */
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        int size = HEADER_BYTES;
+        for (byte[] payload : live.values()) {
+            size += RECORD_HEADER_BYTES + payload.length;
+        }
+
+        FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer target;
+        try {
+            target = out.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_MAP_BYTES, size * 2));
+            target.putInt(MAGIC).putInt(VERSION);
+            CRC32 crc = new CRC32();
+            for (byte[] payload : live.values()) {
+                crc.reset();
+                crc.update(payload);
+                target.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            }
+            target.force();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+
+        int before = writePosition;
+        FileChannel previous = channel;
+        channel = out;
+        buffer = target;
+        writePosition = size;
+        try {
+            previous.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close replaced world registry file: {}", e.getMessage());
+        }
+        logger.info("Compacted world registry {} from {} to {} bytes", path, before, size);
+    }
+
+    private void map(int bytes) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    }
+
+    private ByteBuffer slice(int position) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        return view;
+    }
+
+    /**
+     * A world's full state as a registry record, also used to pass worlds between proxies.
+     */
+    static byte[] encode(WorldInfo world) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_PUT);
+            out.writeUTF(world.getName());
+            out.writeUTF(world.getId());
+            out.writeUTF(world.getType().name());
+            out.writeUTF(world.getStatus().name());
+            out.writeUTF(world.getAddress().getHostString());
+            out.writeInt(world.getAddress().getPort());
+            out.writeBoolean(world.getParentWorld() != null);
+            if (world.getParentWorld() != null) {
+                out.writeUTF(world.getParentWorld());
+            }
+            out.writeLong(world.getStatusChangedAt().toEpochMilli());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode world " + world.getName(), e);
+        }
+    }
+
+    private static byte[] encodeRemove(String name) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_REMOVE);
+            out.writeUTF(name);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode removal of world " + name, e);
+        }
+    }
+
+    /**
+     * Read a world back from a record made by {@link #encode(WorldInfo)}.
+     */
+    static WorldInfo decode(byte[] record) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            if (in.readByte() != OP_PUT) {
+                throw new IOException("Not a world record");
+            }
+            return decode(in.readUTF(), in);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot decode world record: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A world recorded mid-transition is restored in the status the transition started
+     * from; reconciliation settles what the VM is really doing.
+     */
+    private static WorldInfo.Status settled(WorldInfo.Status status) {
+        switch (status) {
+            case SUSPENDING:
+                return WorldInfo.Status.RUNNING;
+            case RESUMING:
+                return WorldInfo.Status.SUSPENDED;
+            default:
+                return status;
+        }
+    }
+
+    /**
+     * Addresses are left unresolved so that replay never waits on DNS;
+     * Velocity resolves them when a player connects.
+     */
+    private static WorldInfo decode(String name, DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        WorldType type = WorldType.valueOf(in.readUTF());
+        WorldInfo.Status status = settled(WorldInfo.Status.valueOf(in.readUTF()));
+        InetSocketAddress address = InetSocketAddress.createUnresolved(in.readUTF(), in.readInt());
+        WorldInfo world = new WorldInfo(id, name, type, address, status);
+        if (in.readBoolean()) {
+            world.setParentWorld(in.readUTF());
+        }
+        // Older records end here; the world then counts as in its status since the restart
+        if (in.available() >= Long.BYTES) {
+            world.restoreStatus(status, Instant.ofEpochMilli(in.readLong()));
+        }
+        return world;
+    }
+}
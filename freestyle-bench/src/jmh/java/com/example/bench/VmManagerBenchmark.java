@@ -0,0 +1,119 @@
+package com.example.bench;
+
+import com.example.bench.mock.LatencyDistribution;
+import com.example.bench.mock.MockFreestyleApi;
+import com.example.velocityplugin.vm.FreestyleVMManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Fork, suspend and lookup through {@link FreestyleVMManager} against the
+ * local API stand-in.
+ *
+ * Each invocation issues {@code concurrency} operations at once and waits for
+ * all of them, so throughput is in batches per millisecond and the sampled
+ * latency (see the p0.99 column) is the time for the slowest of the batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class VmManagerBenchmark {
+
+    private static final int SEEDED_VMS = 256;
+
+    @Param({"1", "16", "64"})
+    public int concurrency;
+
+    @Param({"0", "lognormal:20:0.5"})
+    public String apiLatency;
+
+    @Param({"0"})
+    public double errorRate;
+
+    private MockFreestyleApi api;
+    private FreestyleVMManager vmManager;
+    private String[] vmIds;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        api = MockFreestyleApi.builder()
+            .latency(LatencyDistribution.parse(apiLatency))
+            .errorRate(errorRate)
+            .build()
+            .start();
+
+        Properties config = api.clientProperties();
+        vmManager = new FreestyleVMManager(NOPLogger.NOP_LOGGER, config);
+
+        vmIds = new String[SEEDED_VMS];
+        for (int i = 0; i < SEEDED_VMS; i++) {
+            vmIds[i] = api.addVm("seed-" + i, "running");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        vmManager.close();
+        api.stop();
+    }
+
+    @Benchmark
+    public Object fork() {
+        return fanOut(i -> vmManager.forkServerAsync("yrtby", "bench-" + counter.incrementAndGet()));
+    }
+
+    @Benchmark
+    public Object suspend() {
+        return fanOut(i -> vmManager.suspendServerAsync(nextVm()));
+    }
+
+    @Benchmark
+    public Object lookupCached() {
+        return fanOut(i -> vmManager.getServerAsync(nextVm()));
+    }
+
+    @Benchmark
+    public Object lookupUncached() {
+        return fanOut(i -> {
+            String id = nextVm();
+            vmManager.invalidateServer(id);
+            return vmManager.getServerAsync(id);
+        });
+    }
+
+    private String nextVm() {
+        return vmIds[Math.floorMod(counter.incrementAndGet(), vmIds.length)];
+    }
+
+    private Object fanOut(IntFunction<CompletableFuture<?>> operation) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            futures[i] = operation.apply(i);
+        }
+        CompletableFuture.allOf(futures).join();
+        return futures;
+    }
+}
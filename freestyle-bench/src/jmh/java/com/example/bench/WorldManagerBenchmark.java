@@ -0,0 +1,112 @@
+package com.example.bench;
+
+import com.example.bench.mock.LatencyDistribution;
+import com.example.bench.mock.MockFreestyleApi;
+import com.example.bench.proxy.InMemoryProxy;
+import com.example.velocityplugin.vm.FreestyleVMManager;
+import com.example.worldmanager.WorldManager;
+import com.example.worldmanager.WorldManagerConfig;
+import com.example.worldmanager.WorldType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * World operations through {@link WorldManager}, including Velocity
+ * registration against an in-memory proxy, at several concurrency levels.
+ * As in {@link VmManagerBenchmark}, one invocation is a batch of
+ * {@code concurrency} operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class WorldManagerBenchmark {
+
+    @Param({"1", "16", "64"})
+    public int concurrency;
+
+    @Param({"0", "lognormal:20:0.5"})
+    public String apiLatency;
+
+    private MockFreestyleApi api;
+    private FreestyleVMManager vmManager;
+    private WorldManager worldManager;
+    private String[] cycleWorlds;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        api = MockFreestyleApi.builder()
+            .latency(LatencyDistribution.parse(apiLatency))
+            .build()
+            .start();
+
+        vmManager = new FreestyleVMManager(NOPLogger.NOP_LOGGER, api.clientProperties());
+        InMemoryProxy proxy = new InMemoryProxy();
+        Properties worldConfig = new Properties();
+        worldConfig.setProperty("registry.enabled", "false");
+        worldManager = new WorldManager(proxy.getProxyServer(), NOPLogger.NOP_LOGGER,
+            new WorldManagerConfig(worldConfig), vmManager);
+
+        worldManager.createWorld("source", WorldType.SURVIVAL).join();
+
+        // One world per concurrent suspend/resume cycle so cycles never overlap on a world
+        cycleWorlds = new String[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            cycleWorlds[i] = "cycle-" + i;
+            worldManager.createWorld(cycleWorlds[i], WorldType.SURVIVAL).join();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        vmManager.close();
+        api.stop();
+    }
+
+    @Benchmark
+    public Object createWorld() {
+        return fanOut(i -> worldManager.createWorld("create-" + counter.incrementAndGet(), WorldType.SURVIVAL));
+    }
+
+    @Benchmark
+    public Object forkWorld() {
+        return fanOut(i -> worldManager.forkWorld("source", "fork-" + counter.incrementAndGet()));
+    }
+
+    @Benchmark
+    public Object suspendResume() {
+        return fanOut(i -> worldManager.suspendWorld(cycleWorlds[i])
+            .thenCompose(ignored -> worldManager.resumeWorld(cycleWorlds[i])));
+    }
+
+    private Object fanOut(IntFunction<CompletableFuture<?>> operation) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            futures[i] = operation.apply(i);
+        }
+        CompletableFuture.allOf(futures).join();
+        return futures;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.bench.load;
+
+import com.example.velocityplugin.metrics.LatencyHistogram;
+import com.velocitypowered.api.event.Continuation;
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.Subscribe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls the {@code @Subscribe} methods of plugin listeners the way Velocity's
+ * event manager does, and measures them.
+ *
+ * Handlers for an event run one after the other by {@link PostOrder}, then in
+ * registration order. A handler that returns an {@link EventTask} suspends the
+ * event until the task continues it; a handler that throws is counted and
+ * skipped. For each event type, the time spent inside handlers and the bytes
+ * they allocate on the calling thread are recorded separately from the time
+ * the whole event takes, which includes waiting on tasks.
+ *
+ * All listeners must be registered before the first event is fired.
+ */
+class ListenerBus {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Map<Class<?>, List<Handler>> handlers = new LinkedHashMap<>();
+    private final Map<Class<?>, EventStats> stats = new LinkedHashMap<>();
+
+    void register(Object listener) {
+        for (Method method : listener.getClass().getMethods()) {
+            Subscribe subscribe = method.getAnnotation(Subscribe.class);
+            if (subscribe == null || method.getParameterCount() != 1) {
+                continue;
+            }
+            MethodHandle handle;
+            try {
+                handle = MethodHandles.publicLookup().unreflect(method).bindTo(listener)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot call " + method, e);
+            }
+            Class<?> eventType = method.getParameterTypes()[0];
+            List<Handler> list = handlers.computeIfAbsent(eventType, type -> new ArrayList<>());
+            list.add(new Handler(subscribe.order(), handle));
+            list.sort(Comparator.comparingInt(handler -> handler.order.ordinal()));
+            stats.computeIfAbsent(eventType, type -> new EventStats(type.getSimpleName()));
+        }
+    }
+
+    /**
+     * Run an event through its handlers. Completes with the event once every handler
+     * has run, including any tasks they returned.
+     */
+    <E> CompletableFuture<E> fire(E event) {
+        CompletableFuture<E> done = new CompletableFuture<>();
+        List<Handler> list = handlers.getOrDefault(event.getClass(), Collections.emptyList());
+        EventStats eventStats = stats.get(event.getClass());
+        if (eventStats == null) {
+            done.complete(event);
+            return done;
+        }
+        run(new Dispatch<>(event, list, eventStats, done), 0);
+        return done;
+    }
+
+    List<EventStats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    void resetStats() {
+        stats.values().forEach(EventStats::reset);
+    }
+
+    static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private <E> void run(Dispatch<E> dispatch, int from) {
+        long start = System.nanoTime();
+        long allocated = allocatedBytes();
+        for (int i = from; i < dispatch.handlers.size(); i++) {
+            Object result;
+            try {
+                result = dispatch.handlers.get(i).handle.invokeExact((Object) dispatch.event);
+            } catch (Throwable e) {
+                dispatch.stats.errors.increment();
+                continue;
+            }
+            if (result instanceof EventTask) {
+                dispatch.addHandlerTime(System.nanoTime() - start, allocatedBytes() - allocated);
+                int next = i + 1;
+                ((EventTask) result).execute(new Continuation() {
+                    @Override
+                    public void resume() {
+                        run(dispatch, next);
+                    }
+
+                    @Override
+                    public void resumeWithException(Throwable exception) {
+                        dispatch.stats.errors.increment();
+                        run(dispatch, next);
+                    }
+                });
+                return;
+            }
+        }
+        dispatch.addHandlerTime(System.nanoTime() - start, allocatedBytes() - allocated);
+        dispatch.finish();
+    }
+
+    private static final class Handler {
+        private final PostOrder order;
+        private final MethodHandle handle;
+
+        private Handler(PostOrder order, MethodHandle handle) {
+            this.order = order;
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * One event on its way through the handlers.
+     */
+    private static final class Dispatch<E> {
+        private final E event;
+        private final List<Handler> handlers;
+        private final EventStats stats;
+        private final CompletableFuture<E> done;
+        private final long firedAt = System.nanoTime();
+        private long handlerNanos;
+        private long handlerBytes;
+
+        private Dispatch(E event, List<Handler> handlers, EventStats stats, CompletableFuture<E> done) {
+            this.event = event;
+            this.handlers = handlers;
+            this.stats = stats;
+            this.done = done;
+        }
+
+        // Segments run one after another, never concurrently
+        private synchronized void addHandlerTime(long nanos, long bytes) {
+            handlerNanos += nanos;
+            handlerBytes += bytes;
+        }
+
+        private void finish() {
+            synchronized (this) {
+                stats.handlerTime.recordNanos(handlerNanos);
+                stats.allocatedBytes.add(handlerBytes);
+            }
+            stats.total.recordNanos(System.nanoTime() - firedAt);
+            done.complete(event);
+        }
+    }
+
+    static final class EventStats {
+        private final String name;
+        private final LatencyHistogram handlerTime = new LatencyHistogram();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private EventStats(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Time spent inside handlers per event, not counting waits on their tasks.
+         */
+        LatencyHistogram getHandlerTime() {
+            return handlerTime;
+        }
+
+        /**
+         * Time from firing an event until its last handler finished.
+         */
+        LatencyHistogram getTotal() {
+            return total;
+        }
+
+        long getAllocatedBytes() {
+            return allocatedBytes.sum();
+        }
+
+        long getErrors() {
+            return errors.sum();
+        }
+
+        private void reset() {
+            handlerTime.reset();
+            total.reset();
+            allocatedBytes.reset();
+            errors.reset();
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.example.bench.load;
+
+import com.example.bench.mock.LatencyDistribution;
+import com.example.bench.mock.MockFreestyleApi;
+import com.example.bench.proxy.InMemoryProxy;
+import com.example.bench.proxy.StandInPlayer;
+import com.example.velocityplugin.StandInAddressRewriter;
+import com.example.velocityplugin.metrics.LatencyHistogram;
+import com.example.velocityplugin.vm.FreestyleVMManager;
+import com.example.velocityplugin.vm.OperationScheduler;
+import com.example.worldmanager.LastWorldRouter;
+import com.example.worldmanager.LastWorldStore;
+import com.example.worldmanager.ResumeOnConnectListener;
+import com.example.worldmanager.ShardManager;
+import com.example.worldmanager.WorldManager;
+import com.example.worldmanager.WorldManagerConfig;
+import com.example.worldmanager.WorldOccupancy;
+import com.example.worldmanager.WorldType;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
+import com.velocitypowered.api.event.player.PlayerChooseInitialServerEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.slf4j.helpers.NOPLogger;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives player logins, server switches and logouts through the plugins' event
+ * listeners at fixed rates, against an in-process proxy and the stand-in
+ * Freestyle API, and reports throughput, latency percentiles and allocation.
+ *
+ * Arrivals are open-loop: actions start at the configured rates whether or not
+ * earlier ones have finished, so a slow listener shows up as growing latency
+ * rather than a lower rate. Latency is measured from when an action was due, so
+ * time spent waiting for a worker thread counts.
+ *
+ * A login fires PostLoginEvent and PlayerChooseInitialServerEvent, then
+ * connects the player to the chosen server; connecting fires
+ * ServerPreConnectEvent and, if allowed, ServerConnectedEvent. A switch connects
+ * an online player to a random world and a logout fires DisconnectEvent. Part of
+ * the worlds start suspended, so joins go through resume on connect.
+ *
+ * Run with e.g.
+ * {@code ./gradlew :freestyle-bench:runLoadTest --args='--login-rate 500 --switch-rate 1000 --duration 60'}.
+ */
+public class PlayerLoadTest {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int OFFLINE = 0;
+    private static final int BUSY = 1;
+    private static final int ONLINE = 2;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private enum Action {
+        LOGIN, SWITCH, LOGOUT,
+        /** A plugin moved the player, e.g. to their last world once it woke up. */
+        MOVE
+    }
+
+    private final Options options;
+    private final ListenerBus bus = new ListenerBus();
+    private final Map<Action, ActionStats> stats = new EnumMap<>(Action.class);
+    private final InMemoryProxy proxy = new InMemoryProxy();
+    private final StandInPlayer[] players;
+    private final AtomicIntegerArray states;
+    private final List<String> worldNames = new ArrayList<>();
+    private MockFreestyleApi api;
+    private FreestyleVMManager vmManager;
+    private WorldManager worldManager;
+    private RegisteredServer lobby;
+    private ExecutorService workers;
+
+    private PlayerLoadTest(Options options) {
+        this.options = options;
+        this.players = new StandInPlayer[options.players];
+        this.states = new AtomicIntegerArray(options.players);
+        for (Action action : Action.values()) {
+            stats.put(action, new ActionStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PlayerLoadTest test = new PlayerLoadTest(Options.parse(args));
+        try {
+            test.setUp();
+            test.run();
+        } finally {
+            test.tearDown();
+        }
+    }
+
+    private void setUp() throws Exception {
+        api = MockFreestyleApi.builder().latency(options.apiLatency).build().start();
+        vmManager = new FreestyleVMManager(NOPLogger.NOP_LOGGER, api.clientProperties());
+
+        lobby = proxy.getProxyServer().registerServer(
+            new ServerInfo("lobby", InetSocketAddress.createUnresolved("127.0.0.1", 25565)));
+        Path lastWorlds = Files.createTempDirectory("player-load-test").resolve("last-worlds.properties");
+        Properties worldConfig = new Properties();
+        worldConfig.setProperty("registry.enabled", "false");
+        worldConfig.setProperty("login.lastWorldsPath", lastWorlds.toString());
+        WorldManagerConfig config = new WorldManagerConfig(worldConfig);
+        worldManager = new WorldManager(proxy.getProxyServer(), NOPLogger.NOP_LOGGER, config, vmManager);
+
+        List<CompletableFuture<?>> creates = new ArrayList<>();
+        for (int i = 0; i < options.worlds; i++) {
+            String name = "world-" + i;
+            worldNames.add(name);
+            creates.add(worldManager.createWorld(name, WorldType.SURVIVAL));
+        }
+        CompletableFuture.allOf(creates.toArray(new CompletableFuture<?>[0])).join();
+        int suspended = (int) Math.round(options.worlds * options.suspendedShare);
+        List<CompletableFuture<?>> suspends = new ArrayList<>();
+        for (int i = 0; i < suspended; i++) {
+            suspends.add(worldManager.suspendWorld(worldNames.get(i), OperationScheduler.Priority.USER));
+        }
+        CompletableFuture.allOf(suspends.toArray(new CompletableFuture<?>[0])).join();
+
+        // Same listeners as the plugins register, the Freestyle plugin's first since it loads first
+        WorldOccupancy occupancy = new WorldOccupancy(worldManager);
+        ShardManager shards = new ShardManager(proxy.getProxyServer(), worldManager, occupancy, config, NOPLogger.NOP_LOGGER);
+        bus.register(StandInAddressRewriter.create(proxy.getProxyServer(), NOPLogger.NOP_LOGGER));
+        bus.register(occupancy);
+        bus.register(new ResumeOnConnectListener(worldManager, config, NOPLogger.NOP_LOGGER));
+        bus.register(new LastWorldRouter(proxy.getProxyServer(), worldManager,
+            LastWorldStore.load(lastWorlds, NOPLogger.NOP_LOGGER), config, NOPLogger.NOP_LOGGER));
+        bus.register(shards);
+
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new StandInPlayer("player" + i, InetSocketAddress.createUnresolved("play.example.com", 25565),
+                this::move);
+        }
+
+        workers = Executors.newFixedThreadPool(options.threads, runnable -> {
+            Thread thread = new Thread(runnable, "load-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService shardTicker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-shard-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkSeconds = Math.max(1, config.getShardCheckInterval().getSeconds());
+        shardTicker.scheduleAtFixedRate(shards::tick, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+    }
+
+    private void run() throws InterruptedException {
+        System.out.printf("Player load test: %d players, %d worlds (%.0f%% suspended), %d worker threads%n",
+            options.players, options.worlds, options.suspendedShare * 100, options.threads);
+        System.out.printf("Offered load: %.0f logins/s, %.0f switches/s, %.0f logouts/s for %ds after %ds warmup%n",
+            options.loginRate, options.switchRate, options.logoutRate, options.durationSeconds, options.warmupSeconds);
+
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        Arrivals arrivals = new Arrivals();
+        ticker.scheduleAtFixedRate(arrivals::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds));
+        bus.resetStats();
+        stats.values().forEach(ActionStats::reset);
+        long startAllocated = processAllocatedBytes();
+        long start = System.nanoTime();
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long allocated = processAllocatedBytes() - startAllocated;
+        ticker.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+
+        report(elapsed, allocated);
+    }
+
+    private void tearDown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        if (worldManager != null) {
+            worldManager.close();
+        }
+        if (vmManager != null) {
+            vmManager.close();
+        }
+        if (api != null) {
+            api.stop();
+        }
+    }
+
+    private void login(long due) {
+        int index = pick(OFFLINE);
+        if (index < 0) {
+            stats.get(Action.LOGIN).skipped.increment();
+            return;
+        }
+        StandInPlayer standIn = players[index];
+        Player player = standIn.asPlayer();
+        proxy.addPlayer(player);
+        bus.fire(new PostLoginEvent(player))
+            .thenCompose(ignored -> bus.fire(new PlayerChooseInitialServerEvent(player, lobby)))
+            .thenCompose(event -> connect(standIn, event.getInitialServer().orElse(lobby)))
+            .whenComplete((connected, e) -> {
+                boolean success = e == null && connected;
+                if (!success) {
+                    proxy.removePlayer(standIn.getUniqueId());
+                }
+                finish(Action.LOGIN, due, success);
+                states.set(index, success ? ONLINE : OFFLINE);
+            });
+    }
+
+    private void switchWorld(long due) {
+        int index = pick(ONLINE);
+        if (index < 0) {
+            stats.get(Action.SWITCH).skipped.increment();
+            return;
+        }
+        String worldName = worldNames.get(ThreadLocalRandom.current().nextInt(worldNames.size()));
+        Optional<RegisteredServer> target = proxy.getProxyServer().getServer(worldName);
+        connect(players[index], target.orElse(lobby)).whenComplete((connected, e) -> {
+            finish(Action.SWITCH, due, e == null && connected);
+            states.set(index, ONLINE);
+        });
+    }
+
+    private void logout(long due) {
+        int index = pick(ONLINE);
+        if (index < 0) {
+            stats.get(Action.LOGOUT).skipped.increment();
+            return;
+        }
+        StandInPlayer standIn = players[index];
+        bus.fire(new DisconnectEvent(standIn.asPlayer(), DisconnectEvent.LoginStatus.SUCCESSFUL_LOGIN))
+            .whenComplete((ignored, e) -> {
+                standIn.setCurrentServer(null);
+                proxy.removePlayer(standIn.getUniqueId());
+                finish(Action.LOGOUT, due, e == null);
+                states.set(index, OFFLINE);
+            });
+    }
+
+    /**
+     * A connection request made by a plugin rather than by the load generator.
+     */
+    private void move(Player player, RegisteredServer target) {
+        long due = System.nanoTime();
+        workers.execute(() -> connect(StandInPlayer.of(player), target)
+            .whenComplete((connected, e) -> finish(Action.MOVE, due, e == null && connected)));
+    }
+
+    private CompletableFuture<Boolean> connect(StandInPlayer standIn, RegisteredServer target) {
+        Player player = standIn.asPlayer();
+        RegisteredServer previous = standIn.getCurrentServer().orElse(null);
+        return bus.fire(new ServerPreConnectEvent(player, target, previous)).thenCompose(event -> {
+            Optional<RegisteredServer> server = event.getResult().isAllowed()
+                ? event.getResult().getServer() : Optional.empty();
+            if (server.isEmpty()) {
+                return CompletableFuture.completedFuture(false);
+            }
+            standIn.setCurrentServer(server.get());
+            return bus.fire(new ServerConnectedEvent(player, server.get(), previous)).thenApply(ignored -> true);
+        });
+    }
+
+    /**
+     * Claim a random player in the given state for one action, or -1 if there is none.
+     */
+    private int pick(int state) {
+        int start = ThreadLocalRandom.current().nextInt(players.length);
+        for (int i = 0; i < players.length; i++) {
+            int index = (start + i) % players.length;
+            if (states.get(index) == state && states.compareAndSet(index, state, BUSY)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void finish(Action action, long due, boolean success) {
+        ActionStats actionStats = stats.get(action);
+        actionStats.latency.recordNanos(System.nanoTime() - due);
+        (success ? actionStats.completed : actionStats.failed).increment();
+    }
+
+    private void report(double elapsedSeconds, long allocatedBytes) {
+        System.out.println();
+        System.out.printf("%-8s %10s %8s %8s %9s %9s %9s %9s%n",
+            "action", "completed", "failed", "skipped", "per sec", "p50 ms", "p99 ms", "max ms");
+        long actions = 0;
+        for (Map.Entry<Action, ActionStats> entry : stats.entrySet()) {
+            ActionStats actionStats = entry.getValue();
+            long completed = actionStats.completed.sum();
+            actions += completed + actionStats.failed.sum();
+            LatencyHistogram latency = actionStats.latency;
+            System.out.printf("%-8s %10d %8d %8d %9.1f %9.2f %9.2f %9.2f%n",
+                entry.getKey().name().toLowerCase(), completed, actionStats.failed.sum(), actionStats.skipped.sum(),
+                completed / elapsedSeconds, latency.getPercentileMillis(50), latency.getPercentileMillis(99),
+                latency.getMaxMicros() / 1000.0);
+        }
+
+        System.out.println();
+        System.out.printf("%-32s %9s %7s %14s %14s %14s %13s %12s%n",
+            "event", "count", "errors", "handler p50 us", "handler p99 us", "handler max us", "total p99 ms", "bytes/event");
+        for (ListenerBus.EventStats eventStats : bus.getStats()) {
+            LatencyHistogram handler = eventStats.getHandlerTime();
+            long count = handler.getCount();
+            System.out.printf("%-32s %9d %7d %14d %14d %14d %13.2f %12d%n",
+                eventStats.getName(), count, eventStats.getErrors(), handler.getPercentileMicros(50),
+                handler.getPercentileMicros(99), handler.getMaxMicros(), eventStats.getTotal().getPercentileMillis(99),
+                count == 0 ? 0 : eventStats.getAllocatedBytes() / count);
+        }
+
+        System.out.println();
+        System.out.printf("Allocation: %.1f MB/s across the process (stand-in API included), %d bytes per action%n",
+            allocatedBytes / elapsedSeconds / (1024 * 1024), actions == 0 ? 0 : allocatedBytes / actions);
+        System.out.printf("VM API calls: %d forks, %d starts, %d shutdowns, %d lookups%n",
+            api.getRequestCount(MockFreestyleApi.Endpoint.FORK), api.getRequestCount(MockFreestyleApi.Endpoint.START),
+            api.getRequestCount(MockFreestyleApi.Endpoint.SHUTDOWN), api.getRequestCount(MockFreestyleApi.Endpoint.GET));
+    }
+
+    /**
+     * Bytes allocated so far by all live threads. Threads that have ended are not counted.
+     */
+    private static long processAllocatedBytes() {
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Hands out actions at the configured rates, carrying fractions over between ticks.
+     */
+    private final class Arrivals {
+        private final Map<Action, Double> credit = new EnumMap<>(Action.class);
+        private long lastTick = System.nanoTime();
+
+        private void tick() {
+            long now = System.nanoTime();
+            double seconds = (now - lastTick) / 1e9;
+            lastTick = now;
+            issue(Action.LOGIN, options.loginRate * seconds, now);
+            issue(Action.SWITCH, options.switchRate * seconds, now);
+            issue(Action.LOGOUT, options.logoutRate * seconds, now);
+        }
+
+        private void issue(Action action, double earned, long due) {
+            double available = credit.getOrDefault(action, 0.0) + earned;
+            for (; available >= 1; available--) {
+                switch (action) {
+                    case LOGIN:
+                        workers.execute(() -> login(due));
+                        break;
+                    case SWITCH:
+                        workers.execute(() -> switchWorld(due));
+                        break;
+                    case LOGOUT:
+                        workers.execute(() -> logout(due));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("No arrivals for " + action);
+                }
+            }
+            credit.put(action, available);
+        }
+    }
+
+    private static final class ActionStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+        private void reset() {
+            latency.reset();
+            completed.reset();
+            failed.reset();
+            skipped.reset();
+        }
+    }
+
+    private static final class Options {
+        private int players = 10000;
+        private int worlds = 50;
+        private double suspendedShare = 0.5;
+        private double loginRate = 200;
+        private double switchRate = 200;
+        private double logoutRate = -1;
+        private int durationSeconds = 60;
+        private int warmupSeconds = 10;
+        private int threads = 8;
+        private LatencyDistribution apiLatency = LatencyDistribution.logNormal(20, 0.5);
+
+        private static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--players":
+                        options.players = Integer.parseInt(value);
+                        break;
+                    case "--worlds":
+                        options.worlds = Integer.parseInt(value);
+                        break;
+                    case "--suspended":
+                        options.suspendedShare = Double.parseDouble(value);
+                        break;
+                    case "--login-rate":
+                        options.loginRate = Double.parseDouble(value);
+                        break;
+                    case "--switch-rate":
+                        options.switchRate = Double.parseDouble(value);
+                        break;
+                    case "--logout-rate":
+                        options.logoutRate = Double.parseDouble(value);
+                        break;
+                    case "--duration":
+                        options.durationSeconds = Integer.parseInt(value);
+                        break;
+                    case "--warmup":
+                        options.warmupSeconds = Integer.parseInt(value);
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "--latency":
+                        options.apiLatency = LatencyDistribution.parse(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (options.logoutRate < 0) {
+                // Keep the online population steady by default
+                options.logoutRate = options.loginRate;
+            }
+            return options;
+        }
+    }
+}
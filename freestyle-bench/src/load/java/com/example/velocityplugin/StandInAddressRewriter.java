@@ -0,0 +1,21 @@
+package com.example.velocityplugin;
+
+import com.example.bench.proxy.StandInPlayer;
+import com.velocitypowered.api.proxy.ProxyServer;
+import org.slf4j.Logger;
+
+/**
+ * Builds the {@link AddressRewriter} the load test registers. Stand-in players
+ * are proxy classes with no virtualHost field, so the rewriter is handed
+ * {@link StandInPlayer#VIRTUAL_HOST_SETTER} through its package-private
+ * constructor instead of resolving Velocity's field.
+ */
+public final class StandInAddressRewriter {
+
+    private StandInAddressRewriter() {
+    }
+
+    public static AddressRewriter create(ProxyServer server, Logger logger) {
+        return new AddressRewriter(server, logger, StandInPlayer.VIRTUAL_HOST_SETTER);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bench.mock;
+
+import java.util.Random;
+
+/**
+ * How long the stand-in API takes to answer a request.
+ *
+ * Parsed from a short spec so it can be passed on the command line or as a
+ * JMH parameter: "0", "fixed:50", "uniform:20:80" or "lognormal:40:0.5"
+ * (median in milliseconds and sigma).
+ */
+public interface LatencyDistribution {
+
+    LatencyDistribution NONE = random -> 0;
+
+    /**
+     * Sample a latency in milliseconds.
+     */
+    long sampleMillis(Random random);
+
+    static LatencyDistribution fixed(long millis) {
+        return random -> millis;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+    }
+
+    /**
+     * Log-normal latency, which has the long right tail real API latencies tend to have.
+     */
+    static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        double mu = Math.log(medianMillis);
+        return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        switch (parts[0]) {
+            case "0":
+            case "none":
+                return NONE;
+            case "fixed":
+                return fixed(Long.parseLong(parts[1]));
+            case "uniform":
+                return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            case "lognormal":
+                return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.example.bench.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Freestyle VM API, covering the endpoints the
+ * plugin calls: GET /v1/vms, GET and DELETE /v1/vms/{id},
+ * POST /v1/vms/{id}/fork, /shutdown and /start, and the long-poll
+ * GET /v1/vms/events?after=&lt;cursor&gt;&amp;waitSeconds=&lt;n&gt;.
+ *
+ * Every state change, whether made through the API or with
+ * {@link #changeState}, is appended to an event log that the events endpoint
+ * serves. The log keeps the last {@value #MAX_EVENTS} changes.
+ *
+ * Each endpoint can be given its own latency distribution, and a share of
+ * requests can be failed with a 503 to exercise retries and the circuit breaker.
+ */
+public class MockFreestyleApi {
+
+    public enum Endpoint { GET, FORK, SHUTDOWN, START, DELETE, LIST, EVENTS }
+
+    private static final int MAX_EVENTS = 10000;
+    private static final long MAX_WAIT_MILLIS = 60000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, MockVm> vms = new ConcurrentHashMap<>();
+    private final Map<Endpoint, LatencyDistribution> latencies;
+    private final Map<Endpoint, AtomicLong> requestCounts = new EnumMap<>(Endpoint.class);
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicInteger idCounter = new AtomicInteger();
+    private final Queue<ObjectNode> eventLog = new ArrayDeque<>();
+    private long lastEventSeq;
+    private final double errorRate;
+    private final String domainTemplate;
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private MockFreestyleApi(Builder builder) {
+        this.latencies = new EnumMap<>(builder.latencies);
+        this.errorRate = builder.errorRate;
+        this.domainTemplate = builder.domainTemplate;
+        this.port = builder.port;
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.putIfAbsent(endpoint, builder.defaultLatency);
+            requestCounts.put(endpoint, new AtomicLong());
+        }
+        for (String baseId : builder.baseVms) {
+            vms.put(baseId, new MockVm(baseId, baseId, domainFor(baseId), "suspended"));
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public MockFreestyleApi start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mock-freestyle-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/vms", this::handle);
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Base URL to use as freestyle.api.url.
+     */
+    public URI getBaseUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    /**
+     * freestyle-config.properties settings that point a FreestyleVMManager at this stand-in,
+     * with client-side rate limiting turned off so it does not skew measurements.
+     */
+    public Properties clientProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("freestyle.api.url", getBaseUri().toString());
+        properties.setProperty("freestyle.api.key", "mock");
+        for (Endpoint endpoint : Endpoint.values()) {
+            properties.setProperty("freestyle.ratelimit." + endpoint.name().toLowerCase(Locale.ROOT) + ".perSecond", "0");
+        }
+        return properties;
+    }
+
+    public long getRequestCount(Endpoint endpoint) {
+        return requestCounts.get(endpoint).get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public int getVmCount() {
+        return vms.size();
+    }
+
+    /**
+     * Add a VM directly, e.g. to seed a benchmark with worlds to suspend or look up.
+     */
+    public String addVm(String name, String state) {
+        String id = nextId();
+        MockVm vm = new MockVm(id, name, domainFor(id), state);
+        vms.put(id, vm);
+        recordEvent(vm, null);
+        return id;
+    }
+
+    /**
+     * Change a VM's state as if it happened outside the proxy, e.g. "suspended", or
+     * "failed" with a reason, to exercise status listeners. Returns false if there is
+     * no such VM.
+     */
+    public boolean changeState(String id, String state, String reason) {
+        MockVm vm = vms.get(id);
+        if (vm == null) {
+            return false;
+        }
+        if ("deleted".equals(state)) {
+            vms.remove(id);
+        }
+        vm.state = state;
+        recordEvent(vm, reason);
+        return true;
+    }
+
+    public long getEventCount() {
+        synchronized (eventLog) {
+            return lastEventSeq;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // /v1/vms, /v1/vms/{id} or /v1/vms/{id}/{action}
+            String rest = exchange.getRequestURI().getPath().substring("/v1/vms".length());
+            String[] path = rest.startsWith("/") ? rest.substring(1).split("/") : new String[0];
+            String id = path.length > 0 && !path[0].isEmpty() ? path[0] : null;
+            String action = path.length > 1 ? path[1] : null;
+            String method = exchange.getRequestMethod();
+
+            Endpoint endpoint = route(method, id, action);
+            if (endpoint == null) {
+                send(exchange, 404, error("Unknown endpoint " + method + " " + exchange.getRequestURI().getPath()));
+                return;
+            }
+
+            requestCounts.get(endpoint).incrementAndGet();
+            Random random = ThreadLocalRandom.current();
+            long latency = latencies.get(endpoint).sampleMillis(random);
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                send(exchange, 503, error("Injected failure"));
+                return;
+            }
+
+            if (endpoint == Endpoint.EVENTS) {
+                send(exchange, 200, events(exchange.getRequestURI().getRawQuery()));
+                return;
+            }
+
+            if (endpoint == Endpoint.LIST) {
+                ObjectNode list = objectMapper.createObjectNode();
+                ArrayNode listed = list.putArray("vms");
+                vms.values().forEach(each -> listed.add(each.toJson(objectMapper)));
+                send(exchange, 200, list);
+                return;
+            }
+
+            MockVm vm = vms.get(id);
+            if (vm == null) {
+                send(exchange, 404, error("VM not found: " + id));
+                return;
+            }
+
+            switch (endpoint) {
+                case GET:
+                    send(exchange, 200, vm.toJson(objectMapper));
+                    break;
+                case FORK:
+                    send(exchange, 200, fork(exchange.getRequestBody()).toJson(objectMapper));
+                    break;
+                case SHUTDOWN:
+                    vm.state = "suspended";
+                    recordEvent(vm, null);
+                    send(exchange, 200, vm.toJson(objectMapper));
+                    break;
+                case START:
+                    vm.state = "running";
+                    recordEvent(vm, null);
+                    send(exchange, 200, vm.toJson(objectMapper));
+                    break;
+                case DELETE:
+                    vms.remove(id);
+                    send(exchange, 200, vm.toJson(objectMapper));
+                    vm.state = "deleted";
+                    recordEvent(vm, null);
+                    break;
+                default:
+                    send(exchange, 404, error("Unknown endpoint"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Endpoint route(String method, String id, String action) {
+        if (id == null) {
+            return "GET".equals(method) ? Endpoint.LIST : null;
+        }
+        if (action == null) {
+            if ("events".equals(id)) {
+                return "GET".equals(method) ? Endpoint.EVENTS : null;
+            }
+            switch (method) {
+                case "GET":
+                    return Endpoint.GET;
+                case "DELETE":
+                    return Endpoint.DELETE;
+                default:
+                    return null;
+            }
+        }
+        if (!"POST".equals(method)) {
+            return null;
+        }
+        switch (action) {
+            case "fork":
+                return Endpoint.FORK;
+            case "shutdown":
+                return Endpoint.SHUTDOWN;
+            case "start":
+                return Endpoint.START;
+            default:
+                return null;
+        }
+    }
+
+    private MockVm fork(InputStream body) throws IOException {
+        JsonNode request = objectMapper.readTree(body);
+        String id = nextId();
+        String name = request.hasNonNull("name") ? request.get("name").asText() : id;
+        MockVm forked = new MockVm(id, name, domainFor(id), "running");
+        vms.put(id, forked);
+        recordEvent(forked, null);
+        return forked;
+    }
+
+    private void recordEvent(MockVm vm, String reason) {
+        ObjectNode event = objectMapper.createObjectNode()
+            .put("id", vm.id)
+            .put("name", vm.name)
+            .put("state", vm.state)
+            .put("at", System.currentTimeMillis());
+        if (reason != null) {
+            event.put("reason", reason);
+        }
+        synchronized (eventLog) {
+            event.put("seq", ++lastEventSeq);
+            eventLog.add(event);
+            if (eventLog.size() > MAX_EVENTS) {
+                eventLog.poll();
+            }
+            eventLog.notifyAll();
+        }
+    }
+
+    /**
+     * The events after the "after" cursor, waiting up to waitSeconds for the first one.
+     * Without a cursor, answers at once with just the current cursor.
+     */
+    private ObjectNode events(String query) throws InterruptedException {
+        String after = null;
+        long waitMillis = 0;
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int eq = parameter.indexOf('=');
+                String key = eq < 0 ? parameter : parameter.substring(0, eq);
+                String value = eq < 0 ? "" : parameter.substring(eq + 1);
+                if (key.equals("after")) {
+                    after = value;
+                } else if (key.equals("waitSeconds")) {
+                    waitMillis = Math.min(MAX_WAIT_MILLIS, Long.parseLong(value) * 1000);
+                }
+            }
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode listed = response.putArray("events");
+        synchronized (eventLog) {
+            if (after != null) {
+                long cursor = Long.parseLong(after);
+                long deadline = System.currentTimeMillis() + waitMillis;
+                long remaining = waitMillis;
+                while (lastEventSeq <= cursor && remaining > 0) {
+                    eventLog.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                for (ObjectNode event : eventLog) {
+                    if (event.get("seq").asLong() > cursor) {
+                        listed.add(event);
+                    }
+                }
+            }
+            response.put("cursor", Long.toString(lastEventSeq));
+        }
+        return response;
+    }
+
+    private String nextId() {
+        return "mock" + idCounter.incrementAndGet();
+    }
+
+    private String domainFor(String id) {
+        return String.format(domainTemplate, id);
+    }
+
+    private ObjectNode error(String message) {
+        return objectMapper.createObjectNode().put("error", message);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class MockVm {
+        private final String id;
+        private final String name;
+        private final String domain;
+        private volatile String state;
+
+        private MockVm(String id, String name, String domain, String state) {
+            this.id = id;
+            this.name = name;
+            this.domain = domain;
+            this.state = state;
+        }
+
+        private ObjectNode toJson(ObjectMapper objectMapper) {
+            ObjectNode node = objectMapper.createObjectNode()
+                .put("id", id)
+                .put("name", name)
+                .put("state", state);
+            node.putArray("domains").add(domain);
+            return node;
+        }
+    }
+
+    public static final class Builder {
+        private final Map<Endpoint, LatencyDistribution> latencies = new EnumMap<>(Endpoint.class);
+        private final List<String> baseVms = new ArrayList<>(List.of("yrtby"));
+        private LatencyDistribution defaultLatency = LatencyDistribution.NONE;
+        private double errorRate;
+        private String domainTemplate = "127.0.0.1";
+        private int port;
+
+        private Builder() {
+        }
+
+        /**
+         * Port to listen on; 0 (the default) picks a free one.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder latency(LatencyDistribution latency) {
+            this.defaultLatency = latency;
+            return this;
+        }
+
+        public Builder latency(Endpoint endpoint, LatencyDistribution latency) {
+            latencies.put(endpoint, latency);
+            return this;
+        }
+
+        /**
+         * Share of requests (0-1) answered with a 503 after their latency.
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Base VMs that exist from the start, in addition to "yrtby".
+         */
+        public Builder baseVm(String id) {
+            baseVms.add(id);
+            return this;
+        }
+
+        /**
+         * Format for VM domains, with %s replaced by the VM id. Defaults to 127.0.0.1 so
+         * that nothing is looked up in DNS.
+         */
+        public Builder domainTemplate(String domainTemplate) {
+            this.domainTemplate = domainTemplate;
+            return this;
+        }
+
+        public MockFreestyleApi build() {
+            return new MockFreestyleApi(this);
+        }
+    }
+
+    /**
+     * Run the stand-in on its own, e.g.
+     * {@code --port 8089 --latency lognormal:40:0.5 --fork-latency fixed:2000 --error-rate 0.01}.
+     */
+    public static void main(String[] args) throws Exception {
+        Builder builder = builder().port(8089);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port":
+                    builder.port(Integer.parseInt(value));
+                    break;
+                case "--latency":
+                    builder.latency(LatencyDistribution.parse(value));
+                    break;
+                case "--fork-latency":
+                    builder.latency(Endpoint.FORK, LatencyDistribution.parse(value));
+                    break;
+                case "--error-rate":
+                    builder.errorRate(Double.parseDouble(value));
+                    break;
+                case "--base":
+                    builder.baseVm(value);
+                    break;
+                case "--domain":
+                    builder.domainTemplate(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        MockFreestyleApi api = builder.build().start();
+        System.out.println("Mock Freestyle API listening on " + api.getBaseUri());
+        Runtime.getRuntime().addShutdownHook(new Thread(api::stop));
+        Thread.currentThread().join();
+    }
+}
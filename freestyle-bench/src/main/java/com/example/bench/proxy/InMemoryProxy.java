@@ -0,0 +1,147 @@
+package com.example.bench.proxy;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.config.ProxyConfig;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import net.kyori.adventure.text.Component;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal in-process stand-in for Velocity's {@link ProxyServer}: a server
+ * registry, a player registry and an empty configuration, enough to drive
+ * WorldManager and its listeners without a running proxy. Anything else throws
+ * UnsupportedOperationException.
+ */
+public class InMemoryProxy {
+
+    private static final ServerPing PING = new ServerPing(
+        new ServerPing.Version(765, "stand-in"), null, Component.text("stand-in"), null);
+
+    private final Map<String, RegisteredServer> servers = new ConcurrentHashMap<>();
+    private final Map<UUID, Player> players = new ConcurrentHashMap<>();
+    private final ProxyServer proxyServer;
+    private final ProxyConfig proxyConfig;
+
+    public InMemoryProxy() {
+        this.proxyServer = newProxy(ProxyServer.class, this::invokeProxyServer);
+        this.proxyConfig = newProxy(ProxyConfig.class, this::invokeProxyConfig);
+    }
+
+    public ProxyServer getProxyServer() {
+        return proxyServer;
+    }
+
+    public int getRegisteredCount() {
+        return servers.size();
+    }
+
+    /**
+     * Make a player visible through getPlayer and getAllPlayers, e.g. once it has logged in.
+     */
+    public void addPlayer(Player player) {
+        players.put(player.getUniqueId(), player);
+    }
+
+    public void removePlayer(UUID playerId) {
+        players.remove(playerId);
+    }
+
+    /**
+     * A registered server that answers pings immediately and has no players.
+     */
+    public RegisteredServer newRegisteredServer(ServerInfo info) {
+        return newProxy(RegisteredServer.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getServerInfo":
+                    return info;
+                case "getPlayersConnected":
+                    return List.of();
+                case "ping":
+                    return CompletableFuture.completedFuture(PING);
+                default:
+                    return objectMethod(proxy, method, args, "RegisteredServer[" + info.getName() + "]");
+            }
+        });
+    }
+
+    protected Object invokeProxyServer(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getServer":
+                return Optional.ofNullable(servers.get((String) args[0]));
+            case "getAllServers":
+                return List.copyOf(servers.values());
+            case "registerServer": {
+                ServerInfo info = (ServerInfo) args[0];
+                RegisteredServer registered = newRegisteredServer(info);
+                if (servers.putIfAbsent(info.getName(), registered) != null) {
+                    throw new IllegalArgumentException("Server with name " + info.getName() + " already registered");
+                }
+                return registered;
+            }
+            case "createRawRegisteredServer":
+                return newRegisteredServer((ServerInfo) args[0]);
+            case "unregisterServer":
+                servers.remove(((ServerInfo) args[0]).getName());
+                return null;
+            case "getConfiguration":
+                return proxyConfig;
+            case "getPlayer":
+                if (args[0] instanceof UUID) {
+                    return Optional.ofNullable(players.get((UUID) args[0]));
+                }
+                return players.values().stream().filter(player -> player.getUsername().equalsIgnoreCase((String) args[0])).findFirst();
+            case "getAllPlayers":
+                return List.copyOf(players.values());
+            case "getPlayerCount":
+                return players.size();
+            default:
+                return objectMethod(proxy, method, args, "InMemoryProxy");
+        }
+    }
+
+    protected Object invokeProxyConfig(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getAttemptConnectionOrder":
+                return List.of();
+            case "getForcedHosts":
+            case "getServers":
+                return Map.of();
+            case "getShowMaxPlayers":
+                return 500;
+            default:
+                return objectMethod(proxy, method, args, "ProxyConfig");
+        }
+    }
+
+    /**
+     * Handle equals/hashCode/toString on a stand-in and reject everything else.
+     */
+    protected static Object objectMethod(Object proxy, Method method, Object[] args, String description) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return description;
+            default:
+                throw new UnsupportedOperationException(description + " does not implement " + method.getName());
+        }
+    }
+
+    protected static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InMemoryProxy.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.bench.proxy;
+
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Minimal in-process stand-in for a connected Velocity {@link Player}: a name,
+ * a virtual host and the server it is on. Connection requests it makes are
+ * handed to a callback and messages sent to it are only counted. Anything else
+ * throws UnsupportedOperationException.
+ */
+public class StandInPlayer {
+
+    /**
+     * Sets a stand-in's virtual host, typed (Object, InetSocketAddress)void as
+     * AddressRewriter expects, since a proxy class has no virtualHost field to find.
+     */
+    public static final MethodHandle VIRTUAL_HOST_SETTER;
+
+    static {
+        try {
+            VIRTUAL_HOST_SETTER = MethodHandles.lookup().findStatic(StandInPlayer.class, "setVirtualHost",
+                MethodType.methodType(void.class, Object.class, InetSocketAddress.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final InetSocketAddress REMOTE_ADDRESS = InetSocketAddress.createUnresolved("127.0.0.1", 50000);
+
+    private final UUID uniqueId;
+    private final String username;
+    private final BiConsumer<Player, RegisteredServer> connector;
+    private final Player player;
+    private final AtomicLong messages = new AtomicLong();
+    private volatile InetSocketAddress virtualHost;
+    private volatile ServerConnection connection;
+
+    /**
+     * @param connector called with the player and target when the player is asked to
+     *                  connect somewhere, e.g. by {@code createConnectionRequest(...).fireAndForget()}
+     */
+    public StandInPlayer(String username, InetSocketAddress virtualHost, BiConsumer<Player, RegisteredServer> connector) {
+        this.uniqueId = UUID.nameUUIDFromBytes(("OfflinePlayer:" + username).getBytes(StandardCharsets.UTF_8));
+        this.username = username;
+        this.virtualHost = virtualHost;
+        this.connector = connector;
+        this.player = InMemoryProxy.newProxy(Player.class, new Handler());
+    }
+
+    /**
+     * The stand-in behind a player created by this class.
+     */
+    public static StandInPlayer of(Player player) {
+        return ((Handler) Proxy.getInvocationHandler(player)).owner();
+    }
+
+    public Player asPlayer() {
+        return player;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public InetSocketAddress getVirtualHost() {
+        return virtualHost;
+    }
+
+    public Optional<RegisteredServer> getCurrentServer() {
+        ServerConnection current = connection;
+        return current == null ? Optional.empty() : Optional.of(current.getServer());
+    }
+
+    /**
+     * Record that the player is now on a server, or on none.
+     */
+    public void setCurrentServer(RegisteredServer server) {
+        this.connection = server == null ? null : newConnection(server);
+    }
+
+    public long getMessagesReceived() {
+        return messages.get();
+    }
+
+    private static void setVirtualHost(Object player, InetSocketAddress virtualHost) {
+        of((Player) player).virtualHost = virtualHost;
+    }
+
+    private Object invokePlayer(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getUniqueId":
+                return uniqueId;
+            case "getUsername":
+                return username;
+            case "getVirtualHost":
+                return Optional.ofNullable(virtualHost);
+            case "getRemoteAddress":
+                return REMOTE_ADDRESS;
+            case "isActive":
+                return true;
+            case "getCurrentServer":
+                return Optional.ofNullable(connection);
+            case "createConnectionRequest":
+                return newConnectionRequest((RegisteredServer) args[0]);
+            case "sendMessage":
+                messages.incrementAndGet();
+                return null;
+            default:
+                return InMemoryProxy.objectMethod(proxy, method, args, "StandInPlayer[" + username + "]");
+        }
+    }
+
+    private ServerConnection newConnection(RegisteredServer server) {
+        return InMemoryProxy.newProxy(ServerConnection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getServer":
+                    return server;
+                case "getServerInfo":
+                    return server.getServerInfo();
+                case "getPlayer":
+                    return player;
+                default:
+                    return InMemoryProxy.objectMethod(proxy, method, args, "ServerConnection[" + username + "]");
+            }
+        });
+    }
+
+    private ConnectionRequestBuilder newConnectionRequest(RegisteredServer target) {
+        return InMemoryProxy.newProxy(ConnectionRequestBuilder.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getServer":
+                    return target;
+                case "fireAndForget":
+                    connector.accept(player, target);
+                    return null;
+                default:
+                    return InMemoryProxy.objectMethod(proxy, method, args, "ConnectionRequest[" + username + "]");
+            }
+        });
+    }
+
+    private final class Handler implements InvocationHandler {
+        private StandInPlayer owner() {
+            return StandInPlayer.this;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return invokePlayer(proxy, method, args);
+        }
+    }
+}
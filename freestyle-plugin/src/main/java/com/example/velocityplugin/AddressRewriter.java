@@ -1,56 +1,146 @@
 package com.example.velocityplugin;
 
-import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
-import com.velocitypowered.api.event.connection.PostLoginEvent;
 import com.velocitypowered.api.event.player.ServerPreConnectEvent;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
 import org.slf4j.Logger;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.net.InetSocketAddress;
+import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
+import java.util.WeakHashMap;
 
+/**
+ * Points each player's virtual host at the backend they are switching to, so
+ * Freestyle's domain routing sends the connection to the right VM.
+ *
+ * This runs on every server switch, so the setter for the player's
+ * virtualHost field is resolved once per player class and the rewritten
+ * addresses are cached per registered server. A pre-connect does no
+ * reflection and, because the addresses are left unresolved, no DNS lookup.
+ * The cache holds servers weakly, so an entry goes once its server has been
+ * unregistered and nothing else refers to it.
+ */
 public class AddressRewriter {
 
+    private static final String CONNECTED_PLAYER_CLASS = "com.velocitypowered.proxy.connection.client.ConnectedPlayer";
+    private static final int DEFAULT_PORT = 25565;
+
     private final ProxyServer server;
     private final Logger logger;
+    private final Map<RegisteredServer, CachedVirtualHost> virtualHosts = Collections.synchronizedMap(new WeakHashMap<>());
+    private final MethodHandle fixedSetter;
+
+    // The field is final in Velocity, so a VarHandle would be read-only; a setter
+    // MethodHandle unreflected from an accessible Field can still write it.
+    private final ClassValue<Optional<MethodHandle>> virtualHostSetters = new ClassValue<>() {
+        @Override
+        protected Optional<MethodHandle> computeValue(Class<?> type) {
+            return fixedSetter != null ? Optional.of(fixedSetter) : resolveVirtualHostSetter(type);
+        }
+    };
 
     public AddressRewriter(ProxyServer server, Logger logger) {
+        this(server, logger, null);
+    }
+
+    /**
+     * Set virtual hosts through the given setter, typed (Object, InetSocketAddress)void,
+     * for every player class instead of Velocity's field. Only the load test's stand-in
+     * players need this, so it is not part of the public API.
+     */
+    AddressRewriter(ProxyServer server, Logger logger, MethodHandle virtualHostSetter) {
         this.server = server;
         this.logger = logger;
+        this.fixedSetter = virtualHostSetter;
+        if (virtualHostSetter != null) {
+            return;
+        }
+
+        // Resolve the setter for Velocity's player class up front rather than on the first switch
+        try {
+            virtualHostSetters.get(Class.forName(CONNECTED_PLAYER_CLASS));
+        } catch (ClassNotFoundException e) {
+            logger.warn("{} not found, virtual host setter will be resolved on first use", CONNECTED_PLAYER_CLASS);
+        }
     }
 
     @Subscribe
-    public EventTask onServerPreConnect(ServerPreConnectEvent event) throws Exception {
-        return EventTask.async(() -> {
-            if (event.getResult().getServer().isEmpty()) {
-                return;
-            }
+    public void onServerPreConnect(ServerPreConnectEvent event) {
+        Optional<RegisteredServer> target = event.getResult().getServer();
+        if (target.isEmpty()) {
+            return;
+        }
+
+        Player player = event.getPlayer();
+        Optional<MethodHandle> setter = virtualHostSetters.get(player.getClass());
+        if (setter.isEmpty()) {
+            return;
+        }
 
-            Player player = event.getPlayer();
-            RegisteredServer targetServer = event.getResult().getServer().get();
-            String targetHostname = targetServer.getServerInfo().getAddress().getHostString();
-            InetSocketAddress originalVirtualHost = player.getVirtualHost().orElse(null);
+        InetSocketAddress originalVirtualHost = player.getVirtualHost().orElse(null);
+        int port = originalVirtualHost != null ? originalVirtualHost.getPort() : DEFAULT_PORT;
 
+        try {
+            setter.get().invokeExact((Object) player, virtualHostFor(target.get(), port));
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to rewrite virtual host for " + player.getUsername(), e);
+        }
+    }
+
+    private InetSocketAddress virtualHostFor(RegisteredServer target, int port) {
+        ServerInfo info = target.getServerInfo();
+        CachedVirtualHost cached = virtualHosts.get(target);
+        if (cached != null && cached.matches(info, port)) {
+            return cached.address;
+        }
+
+        String hostname = info.getAddress().getHostString();
+        CachedVirtualHost fresh = new CachedVirtualHost(info, port, InetSocketAddress.createUnresolved(hostname, port));
+        virtualHosts.put(target, fresh);
+        return fresh.address;
+    }
+
+    private Optional<MethodHandle> resolveVirtualHostSetter(Class<?> playerClass) {
+        for (Class<?> type = playerClass; type != null; type = type.getSuperclass()) {
             try {
-                modifyVirtualHost(player, targetHostname, originalVirtualHost != null ? originalVirtualHost.getPort() : 25565);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                Field field = type.getDeclaredField("virtualHost");
+                field.setAccessible(true);
+                MethodHandle setter = MethodHandles.lookup().unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, InetSocketAddress.class));
+                return Optional.of(setter);
+            } catch (NoSuchFieldException e) {
+                // keep walking up the hierarchy
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.error("Cannot access virtualHost on {}, address rewriting disabled: {}", type.getName(), e.getMessage());
+                return Optional.empty();
             }
-        });
+        }
+
+        logger.error("No virtualHost field on {}, address rewriting disabled", playerClass.getName());
+        return Optional.empty();
     }
 
-    private boolean modifyVirtualHost(Player player, String newHostname, int port) throws Exception {
-        Object connectedPlayer = player;
-        InetSocketAddress newVirtualHost = new InetSocketAddress(newHostname, port);
+    private static final class CachedVirtualHost {
+        private final ServerInfo info;
+        private final int port;
+        private final InetSocketAddress address;
+
+        private CachedVirtualHost(ServerInfo info, int port, InetSocketAddress address) {
+            this.info = info;
+            this.port = port;
+            this.address = address;
+        }
 
-        Field virtualHostField = connectedPlayer.getClass().getDeclaredField("virtualHost");
-        virtualHostField.setAccessible(true);
-        virtualHostField.set(connectedPlayer, newVirtualHost);
-        return true;
+        private boolean matches(ServerInfo other, int otherPort) {
+            return port == otherPort && (info == other || info.equals(other));
+        }
     }
 }
@@ -0,0 +1,72 @@
+package com.example.velocityplugin;
+
+import com.example.velocityplugin.metrics.LatencyHistogram;
+import com.example.velocityplugin.metrics.OperationMetrics;
+import com.example.velocityplugin.metrics.VmMetrics;
+import com.example.velocityplugin.vm.FreestyleVMManager;
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.velocitypowered.api.command.BrigadierCommand;
+import com.velocitypowered.api.command.CommandSource;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.Map;
+
+/**
+ * Admin command for the Freestyle plugin: /freestyle metrics.
+ * Requires the freestyle.admin permission.
+ */
+public class FreestyleCommand {
+    public static final String PERMISSION = "freestyle.admin";
+
+    private FreestyleCommand() {
+    }
+
+    public static BrigadierCommand create() {
+        return new BrigadierCommand(
+            LiteralArgumentBuilder.<CommandSource>literal("freestyle")
+                .requires(source -> source.hasPermission(PERMISSION))
+                .then(LiteralArgumentBuilder.<CommandSource>literal("metrics")
+                    .executes(context -> {
+                        showMetrics(context.getSource());
+                        return Command.SINGLE_SUCCESS;
+                    })
+                )
+        );
+    }
+
+    private static void showMetrics(CommandSource source) {
+        FreestyleVMManager vmManager = FreestylePlugin.getVMManager();
+        if (vmManager == null) {
+            source.sendMessage(Component.text("Freestyle VM manager is not available.", NamedTextColor.RED));
+            return;
+        }
+
+        VmMetrics metrics = vmManager.getMetrics();
+        source.sendMessage(Component.text("VM operations:", NamedTextColor.AQUA));
+        showFamily(source, metrics.getOperations());
+        source.sendMessage(Component.text("API requests:", NamedTextColor.AQUA));
+        showFamily(source, metrics.getApiRequests());
+        source.sendMessage(Component.text("Scheduler queues:", NamedTextColor.AQUA));
+        showFamily(source, metrics.getSchedulerQueues());
+
+        source.sendMessage(Component.text("Other:", NamedTextColor.AQUA));
+        metrics.getSampled().forEach((name, value) ->
+            source.sendMessage(Component.text("  " + name + " = " + value.getValue(), NamedTextColor.GRAY)));
+    }
+
+    private static void showFamily(CommandSource source, Map<String, OperationMetrics> family) {
+        if (family.isEmpty()) {
+            source.sendMessage(Component.text("  (none yet)", NamedTextColor.GRAY));
+            return;
+        }
+        for (OperationMetrics operation : family.values()) {
+            LatencyHistogram latency = operation.getLatency();
+            source.sendMessage(Component.text(String.format("  %s: %s in flight, p50 %.0fms, p99 %.0fms, max %.0fms, %s",
+                operation.getName(), operation.getInFlight(), latency.getPercentileMillis(50),
+                latency.getPercentileMillis(99), latency.getMaxMicros() / 1000.0, operation.getOutcomes()),
+                NamedTextColor.WHITE));
+        }
+    }
+}
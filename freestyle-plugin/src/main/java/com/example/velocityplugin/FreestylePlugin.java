@@ -3,8 +3,10 @@ package com.example.velocityplugin;
 import com.google.inject.Inject;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.example.velocityplugin.event.VmStatusEvent;
 import com.example.velocityplugin.vm.FreestyleVMManager;
 import org.slf4j.Logger;
 
@@ -38,8 +40,21 @@ public class FreestylePlugin {
             // Register listeners
             server.getEventManager().register(this, new AddressRewriter(server, logger));
 
+            // Re-fire VM state changes on Velocity's event bus for other plugins
+            vmManager.getStatusFeed().addListener(change -> {
+                VmStatusEvent statusEvent = VmStatusEvent.of(change);
+                if (statusEvent != null) {
+                    server.getEventManager().fireAndForget(statusEvent);
+                }
+            });
+
+            server.getCommandManager().register(
+                server.getCommandManager().metaBuilder("freestyle").build(),
+                FreestyleCommand.create());
+
             logger.info("FreestylePlugin loaded successfully. VM management API available for other plugins.");
-            logger.info("Using Freestyle API - servers will be forked from VM 'yrtby'");
+            logger.info("Using Freestyle API - new servers will be forked from VM '{}'",
+                vmManager.getBaseVm(FreestyleVMManager.DEFAULT_TEMPLATE));
 
         } catch (Exception e) {
             logger.error("Failed to initialize FreestylePlugin: {}", e.getMessage());
@@ -49,6 +64,13 @@ public class FreestylePlugin {
         }
     }
 
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (vmManager != null) {
+            vmManager.close();
+        }
+    }
+
     /**
      * Get the VM manager instance. This can be called by other plugins.
      */
@@ -0,0 +1,19 @@
+package com.example.velocityplugin.event;
+
+import com.example.velocityplugin.vm.VmStatusChange;
+
+/**
+ * Fired when a VM crashed or could not be started.
+ */
+public final class VmFailedEvent extends VmStatusEvent {
+    public VmFailedEvent(VmStatusChange change) {
+        super(change);
+    }
+
+    /**
+     * Why the VM failed, as reported by the API, or null.
+     */
+    public String getReason() {
+        return getChange().getReason();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.velocityplugin.event;
+
+import com.example.velocityplugin.vm.VmStatusChange;
+
+/**
+ * Fired when a VM is running, e.g. once a fork or resume has finished. The
+ * Minecraft server inside may still need a moment before it answers pings.
+ */
+public final class VmReadyEvent extends VmStatusEvent {
+    public VmReadyEvent(VmStatusChange change) {
+        super(change);
+    }
+}
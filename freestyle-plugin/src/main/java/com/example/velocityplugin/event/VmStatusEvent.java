@@ -0,0 +1,46 @@
+package com.example.velocityplugin.event;
+
+import com.example.velocityplugin.vm.VmStatusChange;
+
+/**
+ * Base of the events fired on Velocity's event bus when a Freestyle VM changes
+ * state. Subscribe to a subclass to hear about one kind of change, or to this
+ * class to hear about all of them.
+ */
+public abstract class VmStatusEvent {
+    private final VmStatusChange change;
+
+    protected VmStatusEvent(VmStatusChange change) {
+        this.change = change;
+    }
+
+    public VmStatusChange getChange() {
+        return change;
+    }
+
+    public String getVmId() {
+        return change.getId();
+    }
+
+    /**
+     * The event that matches a change, or null for changes without one (deleted VMs).
+     */
+    public static VmStatusEvent of(VmStatusChange change) {
+        switch (change.getKind()) {
+            case READY:
+                return new VmReadyEvent(change);
+            case SUSPENDED:
+            case STOPPED:
+                return new VmSuspendedEvent(change);
+            case FAILED:
+                return new VmFailedEvent(change);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + change + "}";
+    }
+}
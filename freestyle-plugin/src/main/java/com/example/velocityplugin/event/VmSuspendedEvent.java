@@ -0,0 +1,12 @@
+package com.example.velocityplugin.event;
+
+import com.example.velocityplugin.vm.VmStatusChange;
+
+/**
+ * Fired when a VM has been suspended or stopped, whoever did it.
+ */
+public final class VmSuspendedEvent extends VmStatusEvent {
+    public VmSuspendedEvent(VmStatusChange change) {
+        super(change);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.velocityplugin.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Latency, in-flight count and outcome counters for one kind of call.
+ * Outcomes are free-form labels such as "success", "error" or an HTTP status code.
+ */
+public class OperationMetrics {
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Time an async call from now until its future completes, counting it as in flight
+     * meanwhile and recording success or error when it finishes.
+     */
+    public <T> CompletableFuture<T> track(Supplier<CompletableFuture<T>> call) {
+        long start = begin();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            end(start, ERROR);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> end(start, error == null ? SUCCESS : ERROR));
+    }
+
+    /**
+     * Start timing a call by hand; pass the returned start time to {@link #end}.
+     */
+    public long begin() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void end(long start, String outcome) {
+        inFlight.decrementAndGet();
+        latency.recordNanos(System.nanoTime() - start);
+        recordOutcome(outcome);
+    }
+
+    /**
+     * Count an outcome without a latency, e.g. a call rejected before it was sent.
+     */
+    public void recordOutcome(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getOutcomeCount(String outcome) {
+        LongAdder adder = outcomes.get(outcome);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Outcome counts sorted by label.
+     */
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        outcomes.forEach((outcome, adder) -> snapshot.put(outcome, adder.sum()));
+        return snapshot;
+    }
+}
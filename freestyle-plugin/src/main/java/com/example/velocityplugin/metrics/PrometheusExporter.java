@@ -0,0 +1,147 @@
+package com.example.velocityplugin.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link VmMetrics} in the Prometheus text format at /metrics.
+ * Latencies are exported as cumulative histograms in seconds, so quantiles
+ * over any window can be taken with histogram_quantile() on the bucket rates
+ * rather than being fixed over the whole lifetime of the process.
+ */
+public class PrometheusExporter {
+    // From a cached API call to a cold fork; everything slower lands in +Inf
+    private static final double[] BUCKET_SECONDS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120
+    };
+    private static final long[] BUCKET_MICROS = new long[BUCKET_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+            BUCKET_MICROS[i] = Math.round(BUCKET_SECONDS[i] * 1_000_000);
+        }
+    }
+
+    private final VmMetrics metrics;
+    private final InetSocketAddress address;
+    private final Logger logger;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PrometheusExporter(VmMetrics metrics, InetSocketAddress address, Logger logger) {
+        this.metrics = metrics;
+        this.address = address;
+        this.logger = logger;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(address, 16);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "freestyle-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        logger.info("Serving Prometheus metrics on http://{}:{}/metrics",
+            address.getHostString(), server.getAddress().getPort());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = format(metrics).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public static String format(VmMetrics metrics) {
+        StringBuilder out = new StringBuilder(4096);
+        writeFamily(out, "freestyle_vm_operation", "operation", "outcome",
+            "VM operations as seen by callers", metrics.getOperations());
+        writeFamily(out, "freestyle_api_request", "endpoint", "status",
+            "HTTP attempts against the Freestyle API", metrics.getApiRequests());
+        writeFamily(out, "freestyle_scheduler_wait", "priority", "outcome",
+            "VM operations queued in the scheduler", metrics.getSchedulerQueues());
+
+        for (Map.Entry<String, VmMetrics.Sampled> entry : metrics.getSampled().entrySet()) {
+            VmMetrics.Sampled value = entry.getValue();
+            header(out, entry.getKey(), value.getHelp(), value.getKind().name().toLowerCase(Locale.ROOT));
+            out.append(entry.getKey()).append(' ').append(value.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void writeFamily(StringBuilder out, String prefix, String label, String outcomeLabel,
+                                    String description, Map<String, OperationMetrics> family) {
+        if (family.isEmpty()) {
+            return;
+        }
+
+        header(out, prefix + "_seconds", description + ", latency", "histogram");
+        for (OperationMetrics metrics : family.values()) {
+            LatencyHistogram latency = metrics.getLatency();
+            String labels = label + "=\"" + escape(metrics.getName()) + "\"";
+            long[] cumulative = latency.getCumulativeCounts(BUCKET_MICROS);
+            for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+                out.append(prefix).append("_seconds_bucket{").append(labels)
+                    .append(",le=\"").append(BUCKET_SECONDS[i]).append("\"} ")
+                    .append(cumulative[i]).append('\n');
+            }
+            long total = cumulative[BUCKET_SECONDS.length];
+            out.append(prefix).append("_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                .append(total).append('\n');
+            out.append(prefix).append("_seconds_sum{").append(labels).append("} ")
+                .append(seconds(latency.getSumMicros())).append('\n');
+            out.append(prefix).append("_seconds_count{").append(labels).append("} ")
+                .append(total).append('\n');
+        }
+
+        header(out, prefix + "s_total", description + ", by " + outcomeLabel, "counter");
+        for (OperationMetrics metrics : family.values()) {
+            for (Map.Entry<String, Long> outcome : metrics.getOutcomes().entrySet()) {
+                out.append(prefix).append("s_total{").append(label).append("=\"").append(escape(metrics.getName()))
+                    .append("\",").append(outcomeLabel).append("=\"").append(escape(outcome.getKey())).append("\"} ")
+                    .append(outcome.getValue()).append('\n');
+            }
+        }
+
+        header(out, prefix + "s_in_flight", description + ", currently in flight", "gauge");
+        for (OperationMetrics metrics : family.values()) {
+            out.append(prefix).append("s_in_flight{").append(label).append("=\"").append(escape(metrics.getName()))
+                .append("\"} ").append(metrics.getInFlight()).append('\n');
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.velocityplugin.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics for the Freestyle plugin: end-to-end timings of VM operations
+ * (fork, suspend, resume, lookup, ...) and per-attempt timings and status
+ * codes of the HTTP requests behind them, time spent queued in the operation
+ * scheduler, plus named values read on demand from other components such as
+ * the cache and warm pool.
+ */
+public class VmMetrics {
+
+    public enum Kind { COUNTER, GAUGE }
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final Map<String, OperationMetrics> apiRequests = new ConcurrentHashMap<>();
+    private final Map<String, OperationMetrics> schedulerQueues = new ConcurrentHashMap<>();
+    private final Map<String, Sampled> sampled = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Metrics for a VM operation as seen by callers, including cache hits, pooled VMs and retries.
+     */
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    /**
+     * Metrics for individual HTTP attempts against one API endpoint, with outcomes by status code.
+     */
+    public OperationMetrics apiRequest(String endpoint) {
+        return apiRequests.computeIfAbsent(endpoint, OperationMetrics::new);
+    }
+
+    /**
+     * Queue waits for one priority class of the operation scheduler; in flight counts
+     * the operations still waiting.
+     */
+    public OperationMetrics schedulerQueue(String priority) {
+        return schedulerQueues.computeIfAbsent(priority, OperationMetrics::new);
+    }
+
+    /**
+     * Register a value that is read each time metrics are exported. Names follow
+     * Prometheus conventions; counters should end in _total.
+     */
+    public void register(String name, String help, Kind kind, LongSupplier value) {
+        sampled.put(name, new Sampled(help, kind, value));
+    }
+
+    public Map<String, OperationMetrics> getOperations() {
+        return new TreeMap<>(operations);
+    }
+
+    public Map<String, OperationMetrics> getApiRequests() {
+        return new TreeMap<>(apiRequests);
+    }
+
+    public Map<String, OperationMetrics> getSchedulerQueues() {
+        return new TreeMap<>(schedulerQueues);
+    }
+
+    public Map<String, Sampled> getSampled() {
+        synchronized (sampled) {
+            return new LinkedHashMap<>(sampled);
+        }
+    }
+
+    public static final class Sampled {
+        private final String help;
+        private final Kind kind;
+        private final LongSupplier value;
+
+        private Sampled(String help, Kind kind, LongSupplier value) {
+            this.help = help;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        public String getHelp() { return help; }
+        public Kind getKind() { return kind; }
+        public long getValue() { return value.getAsLong(); }
+    }
+}
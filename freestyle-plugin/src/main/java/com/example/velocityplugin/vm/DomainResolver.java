@@ -0,0 +1,190 @@
+package com.example.velocityplugin.vm;
+
+import com.example.velocityplugin.metrics.OperationMetrics;
+import org.slf4j.Logger;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves VM domains off the API call path. VM addresses are handed out
+ * unresolved; this resolver looks them up on its own small pool and caches the
+ * result, successful lookups for the positive TTL and failed ones for the
+ * (shorter) negative TTL. Concurrent lookups of the same domain share one.
+ * At most maxEntries domains are cached; beyond that the least recently used
+ * one is dropped.
+ *
+ * Lookups go through InetAddress, so resolving a domain also warms the JVM's
+ * own cache, which Velocity uses when it connects a player to the server.
+ * That is why new VMs are prefetched as soon as a fork returns.
+ */
+public class DomainResolver {
+    private final Logger logger;
+    private final OperationMetrics metrics;
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final ExecutorService executor;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<InetAddress>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DomainResolver(Logger logger, OperationMetrics metrics, Duration positiveTtl, Duration negativeTtl,
+                          int maxEntries, int threads) {
+        this.logger = logger;
+        this.metrics = metrics;
+        this.positiveTtlNanos = positiveTtl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        int capacity = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "freestyle-dns-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Resolve an address. Already resolved addresses are returned as they are; a
+     * domain that recently failed to resolve fails again at once with an
+     * UnknownHostException until its negative TTL runs out.
+     */
+    public CompletableFuture<InetSocketAddress> resolve(InetSocketAddress address) {
+        if (!address.isUnresolved()) {
+            return CompletableFuture.completedFuture(address);
+        }
+        return lookup(address.getHostString())
+            .thenApply(resolved -> new InetSocketAddress(resolved, address.getPort()));
+    }
+
+    /**
+     * Start resolving an address in the background, e.g. right after a fork, so that
+     * it is cached by the time a player connects. Failures are only logged.
+     */
+    public void prefetch(InetSocketAddress address) {
+        if (address == null || !address.isUnresolved()) {
+            return;
+        }
+        resolve(address).exceptionally(e -> {
+            logger.debug("Prefetching {} failed: {}", address.getHostString(), e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * The address resolved from the cache if it is there, otherwise as it was given.
+     * Never looks anything up.
+     */
+    public InetSocketAddress resolveCached(InetSocketAddress address) {
+        if (!address.isUnresolved()) {
+            return address;
+        }
+        Entry entry = cached(key(address.getHostString()));
+        if (entry == null || entry.address == null || entry.isExpired()) {
+            return address;
+        }
+        return new InetSocketAddress(entry.address, address.getPort());
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private CompletableFuture<InetAddress> lookup(String host) {
+        String key = key(host);
+        Entry entry = cached(key);
+        if (entry != null) {
+            if (!entry.isExpired()) {
+                hits.incrementAndGet();
+                return entry.address != null
+                    ? CompletableFuture.completedFuture(entry.address)
+                    : CompletableFuture.failedFuture(new UnknownHostException(host));
+            }
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<InetAddress> load = new CompletableFuture<>();
+        CompletableFuture<InetAddress> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            return existing;
+        }
+
+        metrics.track(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return InetAddress.getByName(host);
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }, executor)).whenComplete((resolved, e) -> {
+            if (e != null) {
+                store(key, new Entry(null, System.nanoTime() + negativeTtlNanos));
+                inFlight.remove(key, load);
+                load.completeExceptionally(new UnknownHostException(host));
+                return;
+            }
+            store(key, new Entry(resolved, System.nanoTime() + positiveTtlNanos));
+            inFlight.remove(key, load);
+            load.complete(resolved);
+        });
+        return load;
+    }
+
+    private Entry cached(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void store(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private static String key(String host) {
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final InetAddress address; // null if the lookup failed
+        private final long expiresAt;
+
+        private Entry(InetAddress address, long expiresAt) {
+            this.address = address;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+    }
+}
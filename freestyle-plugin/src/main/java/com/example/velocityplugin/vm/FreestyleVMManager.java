@@ -1,38 +1,113 @@
 package com.example.velocityplugin.vm;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.velocityplugin.metrics.PrometheusExporter;
+import com.example.velocityplugin.metrics.VmMetrics;
+import com.example.velocityplugin.vm.api.ApiEndpoint;
+import com.example.velocityplugin.vm.api.ApiTransport;
+import com.example.velocityplugin.vm.api.CircuitBreaker;
+import com.example.velocityplugin.vm.api.ForkRequest;
+import com.example.velocityplugin.vm.api.TokenBucket;
+import com.example.velocityplugin.vm.api.VmEventsResponse;
+import com.example.velocityplugin.vm.api.VmListResponse;
+import com.example.velocityplugin.vm.api.VmResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.slf4j.Logger;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Manages Freestyle VM operations for Minecraft servers.
- * Handles creating, suspending, and forking VMs through the Freestyle API.
+ * Handles creating, suspending, forking, listing and deleting VMs through the Freestyle API.
+ *
+ * Every operation has a non-blocking *Async variant built on HttpClient.sendAsync;
+ * responses are decoded from the body stream into typed DTOs on a small dedicated
+ * executor rather than the common pool.
+ * The blocking methods simply wait on those futures.
+ *
+ * All requests go through an {@link ApiTransport}, which rate limits them per
+ * endpoint, retries transient failures and stops calling the API while it is down.
+ *
+ * Operations and API requests are timed and counted in {@link #getMetrics()}, which
+ * can also be scraped in Prometheus format when freestyle.metrics.port is set.
+ *
+ * Callers that issue many operations should submit them through
+ * {@link #getScheduler()} with a priority, so that work a player is waiting on
+ * goes ahead of background work.
+ *
+ * Callers that need to know when a VM changes state should listen on
+ * {@link #getStatusFeed()} rather than polling {@link #getServerAsync(String)}.
  */
 public class FreestyleVMManager {
+    public static final String DEFAULT_TEMPLATE = "default";
+    private static final String DEFAULT_BASE_VM = "yrtby";
+    private static final int MINECRAFT_PORT = 25565;
+    private static final int MAX_ERROR_BODY_BYTES = 512;
+
     private final HttpClient http;
     private final URI apiBase;
     private final String apiKey;
     private final ObjectMapper objectMapper;
+    private final ObjectReader vmReader;
+    private final ObjectReader vmListReader;
+    private final ObjectReader vmEventsReader;
     private final Logger logger;
+    private final ExecutorService responseExecutor;
+    private final Map<String, String> baseVms;
+    private final String vmNamePrefix;
+    private final WarmPool warmPool;
+    private final ServerInstanceCache serverCache;
+    private final DomainResolver resolver;
+    private final ApiTransport transport;
+    private final VmMetrics metrics;
+    private final OperationScheduler scheduler;
+    private final VmStatusFeed statusFeed;
+    private final PrometheusExporter metricsExporter;
 
     public FreestyleVMManager(Logger logger) {
+        this(logger, loadConfiguration(logger));
+    }
+
+    /**
+     * Create a manager from already loaded settings instead of freestyle-config.properties,
+     * e.g. to point it at a local stand-in for the API.
+     */
+    public FreestyleVMManager(Logger logger, Properties config) {
         this.logger = logger;
-        this.http = HttpClient.newHttpClient();
         this.objectMapper = new ObjectMapper();
+        this.vmReader = objectMapper.readerFor(VmResponse.class);
+        this.vmListReader = objectMapper.readerFor(VmListResponse.class);
+        this.vmEventsReader = objectMapper.readerFor(VmEventsResponse.class);
         
         try {
-            Properties config = loadConfiguration();
             String apiUrl = config.getProperty("freestyle.api.url", "https://api.freestyle.sh");
             String apiKey = config.getProperty("freestyle.api.key");
             
@@ -44,8 +119,43 @@ public class FreestyleVMManager {
             
             this.apiBase = URI.create(apiUrl);
             this.apiKey = apiKey;
+            this.vmNamePrefix = config.getProperty("freestyle.vm.namePrefix", defaultVmNamePrefix()).trim();
+            this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(intProperty(config, "freestyle.http.connectTimeoutSeconds", 5)))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+            this.responseExecutor = newResponseExecutor(intProperty(config, "freestyle.http.responseThreads", 2));
+            this.metrics = new VmMetrics();
+            this.transport = createTransport(config);
+            this.scheduler = createScheduler(config);
+            this.serverCache = new ServerInstanceCache(
+                Duration.ofSeconds(intProperty(config, "freestyle.cache.ttlSeconds", 5)),
+                intProperty(config, "freestyle.cache.maxEntries", 1024));
+            this.resolver = new DomainResolver(logger, metrics.operation("dns"),
+                Duration.ofSeconds(intProperty(config, "freestyle.dns.ttlSeconds", 300)),
+                Duration.ofSeconds(intProperty(config, "freestyle.dns.negativeTtlSeconds", 5)),
+                intProperty(config, "freestyle.cache.maxEntries", 1024),
+                intProperty(config, "freestyle.dns.threads", 2));
+            this.baseVms = loadBaseVms(config);
+            this.warmPool = new WarmPool(this, logger,
+                intProperty(config, "freestyle.pool.low", 0),
+                intProperty(config, "freestyle.pool.high", 0),
+                Duration.ofSeconds(intProperty(config, "freestyle.pool.maxIdleSeconds", 600)));
+            this.statusFeed = new VmStatusFeed(this, logger,
+                Duration.ofSeconds(intProperty(config, "freestyle.events.waitSeconds", 30)),
+                Duration.ofSeconds(intProperty(config, "freestyle.events.maxBackoffSeconds", 30)));
+            if (Boolean.parseBoolean(config.getProperty("freestyle.events.enabled", "true").trim())) {
+                this.statusFeed.start();
+            }
+            registerSampledMetrics();
+            this.metricsExporter = startMetricsExporter(config);
+            // Last, so that pool forks only ever see a fully set up manager
+            this.warmPool.start(new LinkedHashSet<>(baseVms.values()), Duration.ofSeconds(intProperty(config, "freestyle.pool.maintenanceSeconds", 30)));
             
             logger.info("Freestyle VM Manager initialized with API: {}", apiUrl);
+            logger.info("Base VMs per template: {}", baseVms);
+            logger.info("VMs forked here are named {}<server>", vmNamePrefix);
             
         } catch (Exception e) {
             logger.error("Failed to initialize Freestyle VM Manager: {}", e.getMessage());
@@ -54,95 +164,621 @@ public class FreestyleVMManager {
     }
 
     /**
-     * Create a new VM for a fresh Minecraft server by forking from the base VM "yrtby".
+     * Create a new VM for a fresh Minecraft server from the default base VM.
      */
     public ServerInstance createServer(String name) throws Exception {
-        // Always fork from the base VM "yrtby" as requested
-        return forkServer("yrtby", name);
+        return createServer(name, DEFAULT_TEMPLATE);
+    }
+
+    /**
+     * Create a new VM for a fresh Minecraft server from the base VM configured for a template
+     * (freestyle.base.&lt;template&gt;). A pre-forked VM from the warm pool is used when one is
+     * ready; the API has no rename, so the name is only bound on the proxy side.
+     */
+    public ServerInstance createServer(String name, String template) throws Exception {
+        return await(createServerAsync(name, template));
+    }
+
+    /**
+     * Non-blocking variant of {@link #createServer(String, String)}.
+     */
+    public CompletableFuture<ServerInstance> createServerAsync(String name, String template) {
+        return metrics.operation("create").track(() -> createFromPoolOrFork(name, template));
+    }
+
+    private CompletableFuture<ServerInstance> createFromPoolOrFork(String name, String template) {
+        String baseId = getBaseVm(template);
+
+        Optional<ServerInstance> pooled = warmPool.take(baseId);
+        if (pooled.isPresent()) {
+            ServerInstance instance = pooled.get();
+            logger.info("Bound pooled VM {} to server {}", instance.getId(), name);
+            resolver.prefetch(instance.getAddress());
+            return CompletableFuture.completedFuture(new ServerInstance(instance.getId(), name, instance.getAddress()));
+        }
+
+        return forkServerAsync(baseId, name);
+    }
+
+    /**
+     * The base VM that servers of a template are forked from, falling back to the default base.
+     */
+    public String getBaseVm(String template) {
+        String baseId = baseVms.get(template.toLowerCase(Locale.ROOT));
+        return baseId != null ? baseId : baseVms.get(DEFAULT_TEMPLATE);
+    }
+
+    /**
+     * The ids of all configured base VMs, which must never be deleted.
+     */
+    public Set<String> getBaseVmIds() {
+        return new LinkedHashSet<>(baseVms.values());
+    }
+
+    /**
+     * Prefixed to the API-side name of every VM this manager forks, so that VMs it
+     * created can be told apart from others on the same API key.
+     */
+    public String getVmNamePrefix() {
+        return vmNamePrefix;
+    }
+
+    /**
+     * Whether a VM from {@link #listServersAsync()} was forked by a manager with this
+     * prefix. Only such VMs may be treated as leftovers of this proxy.
+     */
+    public boolean isForkedHere(ServerInstance vm) {
+        return !vmNamePrefix.isEmpty() && vm.getName() != null && vm.getName().startsWith(vmNamePrefix);
+    }
+
+    /**
+     * mc-&lt;host name&gt;-, so that proxies on different hosts sharing one API key do not
+     * claim each other's VMs. Falls back to mc- if the host name is unknown.
+     */
+    private static String defaultVmNamePrefix() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName().toLowerCase(Locale.ROOT);
+            return "mc-" + host.replaceAll("[^a-z0-9]+", "-") + "-";
+        } catch (IOException e) {
+            return "mc-";
+        }
+    }
+
+    public WarmPool getWarmPool() {
+        return warmPool;
+    }
+
+    /**
+     * The scheduler VM operations should be submitted through, by priority.
+     */
+    public OperationScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Resolves the unresolved addresses of {@link ServerInstance}s, with caching.
+     */
+    public DomainResolver getResolver() {
+        return resolver;
+    }
+
+    /**
+     * VM state changes as they happen, pushed over one shared long-poll request.
+     */
+    public VmStatusFeed getStatusFeed() {
+        return statusFeed;
+    }
+
+    /**
+     * Stop background work. Called when the proxy shuts down.
+     */
+    public void close() {
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        statusFeed.close();
+        // Before the scheduler and response threads go, since it deletes the pooled VMs
+        warmPool.shutdown(Duration.ofSeconds(10));
+        scheduler.close();
+        resolver.shutdown();
+        responseExecutor.shutdown();
+        logger.info("Warm pool stats at shutdown: {}", warmPool);
     }
 
     /**
      * Suspend a running VM (save state).
      */
     public void suspendServer(String id) throws Exception {
+        await(suspendServerAsync(id));
+    }
+
+    /**
+     * Non-blocking variant of {@link #suspendServer(String)}.
+     */
+    public CompletableFuture<Void> suspendServerAsync(String id) {
         HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms/" + id + "/shutdown"))
             .timeout(Duration.ofSeconds(30))
             .header("Authorization", "Bearer " + apiKey)
             .POST(HttpRequest.BodyPublishers.noBody())
             .build();
-            
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-        
-        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-            throw new RuntimeException("Failed to suspend VM: " + resp.statusCode() + " " + resp.body());
+
+        return metrics.operation("suspend").track(() -> transport.send(ApiEndpoint.SHUTDOWN, req, HttpResponse.BodyHandlers.ofString())
+            .thenAcceptAsync(resp -> {
+                if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+                    throw new RuntimeException("Failed to suspend VM: " + resp.statusCode() + " " + resp.body());
+                }
+            }, responseExecutor)
+            .whenComplete((ignored, e) -> serverCache.invalidate(id)));
+    }
+
+    /**
+     * Resume a suspended VM from its saved state.
+     */
+    public void resumeServer(String id) throws Exception {
+        await(resumeServerAsync(id));
+    }
+
+    /**
+     * Non-blocking variant of {@link #resumeServer(String)}.
+     */
+    public CompletableFuture<Void> resumeServerAsync(String id) {
+        HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms/" + id + "/start"))
+            .timeout(Duration.ofSeconds(30))
+            .header("Authorization", "Bearer " + apiKey)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+
+        return metrics.operation("resume").track(() -> transport.send(ApiEndpoint.START, req, HttpResponse.BodyHandlers.ofString())
+            .thenAcceptAsync(resp -> {
+                if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+                    throw new RuntimeException("Failed to resume VM: " + resp.statusCode() + " " + resp.body());
+                }
+            }, responseExecutor)
+            .whenComplete((ignored, e) -> serverCache.invalidate(id)));
+    }
+
+    /**
+     * Delete a VM for good. Deleting a VM that no longer exists succeeds.
+     */
+    public void deleteServer(String id) throws Exception {
+        await(deleteServerAsync(id));
+    }
+
+    /**
+     * Non-blocking variant of {@link #deleteServer(String)}.
+     */
+    public CompletableFuture<Void> deleteServerAsync(String id) {
+        if (getBaseVmIds().contains(id)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Refusing to delete base VM " + id));
         }
+
+        HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms/" + id))
+            .timeout(Duration.ofSeconds(30))
+            .header("Authorization", "Bearer " + apiKey)
+            .DELETE()
+            .build();
+
+        return metrics.operation("delete").track(() -> transport.send(ApiEndpoint.DELETE, req, HttpResponse.BodyHandlers.ofString())
+            .thenAcceptAsync(resp -> {
+                if (resp.statusCode() != 404 && (resp.statusCode() < 200 || resp.statusCode() >= 300)) {
+                    throw new RuntimeException("Failed to delete VM: " + resp.statusCode() + " " + resp.body());
+                }
+            }, responseExecutor)
+            .whenComplete((ignored, e) -> serverCache.invalidate(id)));
+    }
+
+    /**
+     * List every VM on the account. VMs without a domain are listed with a null address.
+     */
+    public CompletableFuture<List<ServerInstance>> listServersAsync() {
+        HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms"))
+            .timeout(Duration.ofSeconds(30))
+            .header("Accept-Encoding", "gzip")
+            .header("Authorization", "Bearer " + apiKey)
+            .GET()
+            .build();
+
+        return metrics.operation("list").track(() -> transport.send(ApiEndpoint.LIST, req, HttpResponse.BodyHandlers.ofInputStream())
+            .thenApplyAsync(resp -> {
+                if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+                    throw new RuntimeException("Failed to list VMs: " + resp.statusCode() + " " + readErrorBody(resp));
+                }
+
+                VmListResponse list;
+                try (InputStream body = openBody(resp)) {
+                    list = vmListReader.readValue(body);
+                } catch (IOException e) {
+                    throw new RuntimeException("Invalid response from Freestyle API: " + e.getMessage(), e);
+                }
+
+                List<ServerInstance> instances = new ArrayList<>(list.getVms().size());
+                for (VmResponse vm : list.getVms()) {
+                    instances.add(toServerInstance(vm, vm.getName()));
+                }
+                return instances;
+            }, responseExecutor));
+    }
+
+    /**
+     * Ask for the VM state changes after a cursor, holding the request open for up to
+     * {@code wait} until there are any. A null cursor returns no changes, just the
+     * current cursor to start from. Fails with UnsupportedOperationException if the
+     * API has no event stream. Used by {@link VmStatusFeed}; other callers should
+     * listen on the feed instead.
+     */
+    public CompletableFuture<VmEventsResponse> pollEventsAsync(String cursor, Duration wait) {
+        String query = "?waitSeconds=" + wait.toSeconds()
+            + (cursor != null ? "&after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8) : "");
+        HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms/events" + query))
+            .timeout(wait.plusSeconds(15))
+            .header("Accept-Encoding", "gzip")
+            .header("Authorization", "Bearer " + apiKey)
+            .GET()
+            .build();
+
+        return transport.send(ApiEndpoint.EVENTS, req, HttpResponse.BodyHandlers.ofInputStream())
+            .thenApplyAsync(resp -> {
+                if (resp.statusCode() == 404 || resp.statusCode() == 405) {
+                    readErrorBody(resp);
+                    throw new UnsupportedOperationException("Freestyle API has no VM event stream");
+                }
+                if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+                    throw new RuntimeException("Failed to get VM events: " + resp.statusCode() + " " + readErrorBody(resp));
+                }
+
+                VmEventsResponse events;
+                try (InputStream body = openBody(resp)) {
+                    events = vmEventsReader.readValue(body);
+                } catch (IOException e) {
+                    throw new RuntimeException("Invalid response from Freestyle API: " + e.getMessage(), e);
+                }
+                return events;
+            }, responseExecutor);
     }
 
     /**
      * Fork an existing suspended server to create a new VM copy.
      */
     public ServerInstance forkServer(String id, String newName) throws Exception {
-        String requestBody = String.format("{\"name\":\"%s\"}", newName);
-        
+        return await(forkServerAsync(id, newName));
+    }
+
+    /**
+     * Non-blocking variant of {@link #forkServer(String, String)}.
+     */
+    public CompletableFuture<ServerInstance> forkServerAsync(String id, String newName) {
         HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms/" + id + "/fork"))
             .timeout(Duration.ofSeconds(30))
             .header("Content-Type", "application/json")
+            .header("Accept-Encoding", "gzip")
             .header("Authorization", "Bearer " + apiKey)
-            .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(writeJson(new ForkRequest(vmNamePrefix + newName))))
             .build();
-            
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-        
-        if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
-            JsonNode responseJson = objectMapper.readTree(resp.body());
-            String vmId = responseJson.get("id").asText();
-            
-            JsonNode domainsNode = responseJson.get("domains");
-            if (domainsNode != null && domainsNode.isArray() && domainsNode.size() > 0) {
-                String firstDomain = domainsNode.get(0).asText();
-                InetSocketAddress address = new InetSocketAddress(firstDomain, 25565);
-                return new ServerInstance(vmId, newName, address);
-            } else {
-                throw new RuntimeException("No domains returned in fork response");
-            }
-        }
-        
-        throw new RuntimeException("Failed to fork VM: " + resp.statusCode() + " " + resp.body());
+
+        return metrics.operation("fork").track(() -> transport.send(ApiEndpoint.FORK, req, HttpResponse.BodyHandlers.ofInputStream())
+            .thenApplyAsync(resp -> {
+                if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+                    throw new RuntimeException("Failed to fork VM: " + resp.statusCode() + " " + readErrorBody(resp));
+                }
+
+                VmResponse vm = readVm(resp);
+                if (vm.getDomains().isEmpty()) {
+                    throw new RuntimeException("No domains returned in fork response");
+                }
+                return toServerInstance(vm, newName);
+            }, responseExecutor)
+            .whenComplete((instance, e) -> {
+                serverCache.invalidate(id);
+                if (instance != null) {
+                    serverCache.invalidate(instance.getId());
+                    // Look the new domain up now, before a player is waiting on it
+                    resolver.prefetch(instance.getAddress());
+                }
+            }));
     }
 
     /**
      * Lookup a server instance by VM id.
      */
     public Optional<ServerInstance> getServer(String id) {
-        try {
-            HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms/" + id))
-                .timeout(Duration.ofSeconds(10))
-                .header("Authorization", "Bearer " + apiKey)
-                .GET()
-                .build();
-                
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-            
-            if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
-                JsonNode responseJson = objectMapper.readTree(resp.body());
-                String vmId = responseJson.get("id").asText();
-                String name = responseJson.get("name").asText();
-                
-                JsonNode domainsNode = responseJson.get("domains");
-                if (domainsNode != null && domainsNode.isArray() && domainsNode.size() > 0) {
-                    String firstDomain = domainsNode.get(0).asText();
-                    InetSocketAddress address = new InetSocketAddress(firstDomain, 25565);
-                    return Optional.of(new ServerInstance(vmId, name, address));
+        return getServerAsync(id).join();
+    }
+
+    /**
+     * Non-blocking variant of {@link #getServer(String)}. Never completes exceptionally;
+     * failures are logged and reported as an empty result.
+     *
+     * Results are cached for freestyle.cache.ttlSeconds, and concurrent lookups
+     * of the same id share one request.
+     */
+    public CompletableFuture<Optional<ServerInstance>> getServerAsync(String id) {
+        return metrics.operation("get").track(() -> serverCache.get(id, this::fetchServer));
+    }
+
+    /**
+     * Drop a cached lookup, e.g. after changing a VM outside this manager.
+     */
+    public void invalidateServer(String id) {
+        serverCache.invalidate(id);
+    }
+
+    public ServerInstanceCache getServerCache() {
+        return serverCache;
+    }
+
+    public ApiTransport getTransport() {
+        return transport;
+    }
+
+    public VmMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Fetch the current state of a VM from the API, bypassing and refreshing the cache.
+     * Unlike {@link #getServerAsync(String)}, only a 404 yields an empty result; any other
+     * failure completes the future exceptionally, so callers can tell a VM that is gone
+     * from one that could not be checked.
+     */
+    public CompletableFuture<Optional<ServerInstance>> refreshServerAsync(String id) {
+        serverCache.invalidate(id);
+        return metrics.operation("refresh").track(() -> requestServer(id));
+    }
+
+    private CompletableFuture<Optional<ServerInstance>> fetchServer(String id) {
+        return requestServer(id)
+            .exceptionally(e -> {
+                logger.warn("Failed to get server info for VM {}: {}", id, unwrap(e).getMessage());
+                return Optional.empty();
+            });
+    }
+
+    private CompletableFuture<Optional<ServerInstance>> requestServer(String id) {
+        HttpRequest req = HttpRequest.newBuilder(apiBase.resolve("/v1/vms/" + id))
+            .timeout(Duration.ofSeconds(10))
+            .header("Accept-Encoding", "gzip")
+            .header("Authorization", "Bearer " + apiKey)
+            .GET()
+            .build();
+
+        return transport.send(ApiEndpoint.GET, req, HttpResponse.BodyHandlers.ofInputStream())
+            .thenApplyAsync(resp -> {
+                if (resp.statusCode() == 404) {
+                    readErrorBody(resp);
+                    return Optional.<ServerInstance>empty();
+                }
+                if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+                    throw new RuntimeException("Failed to get VM " + id + ": " + resp.statusCode() + " " + readErrorBody(resp));
                 }
+
+                // A VM without a domain yet still exists; it gets a null address like in listings
+                VmResponse vm = readVm(resp);
+                return Optional.of(toServerInstance(vm, vm.getName()));
+            }, responseExecutor);
+    }
+
+    /**
+     * The address is left unresolved, so that decoding a response never waits on DNS;
+     * {@link #getResolver()} looks it up when it is needed.
+     */
+    private static ServerInstance toServerInstance(VmResponse vm, String name) {
+        InetSocketAddress address = null;
+        if (!vm.getDomains().isEmpty()) {
+            address = InetSocketAddress.createUnresolved(vm.getDomains().get(0), MINECRAFT_PORT);
+        }
+        ServerInstance instance = new ServerInstance(vm.getId(), name, address);
+        instance.setState(toState(vm.getState()));
+        return instance;
+    }
+
+    /**
+     * Map the API's state string onto ServerInstance.State. VMs that report no state,
+     * or one we do not know, are assumed to be running as before.
+     */
+    private static ServerInstance.State toState(String state) {
+        if (state == null) {
+            return ServerInstance.State.RUNNING;
+        }
+        switch (state.toLowerCase(Locale.ROOT)) {
+            case "suspended":
+            case "suspending":
+                return ServerInstance.State.SUSPENDED;
+            case "stopped":
+            case "stopping":
+            case "shutdown":
+                return ServerInstance.State.STOPPED;
+            default:
+                return ServerInstance.State.RUNNING;
+        }
+    }
+
+    /**
+     * Decode a VM straight from the response stream. Runs on the response executor,
+     * so blocking on the stream here does not hold up the HTTP client.
+     */
+    private VmResponse readVm(HttpResponse<InputStream> resp) {
+        try (InputStream body = openBody(resp)) {
+            return vmReader.readValue(body);
+        } catch (IOException e) {
+            throw new RuntimeException("Invalid response from Freestyle API: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read (a bounded prefix of) an error body for the exception message, releasing the connection.
+     */
+    private static String readErrorBody(HttpResponse<InputStream> resp) {
+        try (InputStream body = openBody(resp)) {
+            byte[] prefix = body.readNBytes(MAX_ERROR_BODY_BYTES);
+            body.transferTo(OutputStream.nullOutputStream());
+            return new String(prefix, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "<unreadable body: " + e.getMessage() + ">";
+        }
+    }
+
+    private static InputStream openBody(HttpResponse<InputStream> resp) throws IOException {
+        boolean gzip = resp.headers().firstValue("Content-Encoding")
+            .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+            .orElse(false);
+        return gzip ? new GZIPInputStream(resp.body()) : resp.body();
+    }
+
+    private byte[] writeJson(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot encode request body: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Block on an async call, rethrowing the original failure instead of a CompletionException.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
-        } catch (Exception e) {
-            logger.warn("Failed to get server info for VM {}: {}", id, e.getMessage());
+            throw e;
         }
-        
-        return Optional.empty();
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private static ExecutorService newResponseExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "freestyle-vm-response-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     
-    private Properties loadConfiguration() {
+    private ApiTransport createTransport(Properties config) {
+        Map<ApiEndpoint, TokenBucket> rateLimits = new EnumMap<>(ApiEndpoint.class);
+        for (ApiEndpoint endpoint : ApiEndpoint.values()) {
+            String prefix = "freestyle.ratelimit." + endpoint.getConfigName();
+            rateLimits.put(endpoint, new TokenBucket(
+                intProperty(config, prefix + ".perSecond", 10),
+                intProperty(config, prefix + ".burst", 20)));
+        }
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+            intProperty(config, "freestyle.breaker.failureThreshold", 5),
+            intProperty(config, "freestyle.breaker.openSeconds", 30) * 1000L);
+
+        return new ApiTransport(http, responseExecutor, logger, metrics, rateLimits, circuitBreaker,
+            intProperty(config, "freestyle.retry.maxAttempts", 3),
+            intProperty(config, "freestyle.retry.baseDelayMillis", 200),
+            intProperty(config, "freestyle.retry.maxDelayMillis", 5000),
+            intProperty(config, "freestyle.ratelimit.maxQueueMillis", 10000));
+    }
+
+    /**
+     * Interactive work may use every slot, user work half and background work a
+     * quarter, so background work can never crowd out the rest.
+     */
+    private OperationScheduler createScheduler(Properties config) {
+        int maxConcurrent = intProperty(config, "freestyle.scheduler.maxConcurrent", 64);
+        Map<OperationScheduler.Priority, Integer> concurrency = new EnumMap<>(OperationScheduler.Priority.class);
+        Map<OperationScheduler.Priority, Integer> maxQueued = new EnumMap<>(OperationScheduler.Priority.class);
+        for (OperationScheduler.Priority priority : OperationScheduler.Priority.values()) {
+            int share = maxConcurrent >> priority.ordinal();
+            String prefix = "freestyle.scheduler." + priority.getConfigName();
+            concurrency.put(priority, intProperty(config, prefix + ".concurrency", Math.max(1, share)));
+            maxQueued.put(priority, intProperty(config, prefix + ".maxQueued", 1000));
+        }
+
+        OperationScheduler scheduler = new OperationScheduler(logger, metrics, concurrency, maxQueued, maxConcurrent,
+            Boolean.parseBoolean(config.getProperty("freestyle.scheduler.virtualThreads", "true").trim()),
+            intProperty(config, "freestyle.scheduler.threads", 4));
+        logger.info("VM operation scheduler: {} at once, {} per class, {}", maxConcurrent, concurrency,
+            scheduler.isUsingVirtualThreads() ? "virtual threads" : "platform threads");
+        return scheduler;
+    }
+
+    private void registerSampledMetrics() {
+        metrics.register("freestyle_cache_hits_total", "VM lookups answered from the cache",
+            VmMetrics.Kind.COUNTER, serverCache::getHits);
+        metrics.register("freestyle_cache_misses_total", "VM lookups that went to the API",
+            VmMetrics.Kind.COUNTER, serverCache::getMisses);
+        metrics.register("freestyle_cache_entries", "VM lookups currently cached",
+            VmMetrics.Kind.GAUGE, serverCache::size);
+        metrics.register("freestyle_dns_cache_hits_total", "VM domain lookups answered from the cache",
+            VmMetrics.Kind.COUNTER, resolver::getHits);
+        metrics.register("freestyle_dns_cache_misses_total", "VM domain lookups that went to DNS",
+            VmMetrics.Kind.COUNTER, resolver::getMisses);
+        metrics.register("freestyle_pool_hits_total", "Server creations served from the warm pool",
+            VmMetrics.Kind.COUNTER, warmPool::getHits);
+        metrics.register("freestyle_pool_misses_total", "Server creations that had to fork",
+            VmMetrics.Kind.COUNTER, warmPool::getMisses);
+        metrics.register("freestyle_pool_expired_total", "Pooled VMs retired for sitting idle too long",
+            VmMetrics.Kind.COUNTER, warmPool::getExpired);
+        metrics.register("freestyle_pool_ready", "Pooled VMs ready to hand out",
+            VmMetrics.Kind.GAUGE, () -> new LinkedHashSet<>(baseVms.values()).stream().mapToLong(warmPool::getReadyCount).sum());
+        metrics.register("freestyle_status_events_total", "VM state changes received from the status feed",
+            VmMetrics.Kind.COUNTER, statusFeed::getReceived);
+        metrics.register("freestyle_status_feed_connected", "1 while the VM status feed is receiving changes",
+            VmMetrics.Kind.GAUGE, () -> statusFeed.isConnected() ? 1 : 0);
+        metrics.register("freestyle_api_circuit_open", "1 while the API circuit breaker is not closed",
+            VmMetrics.Kind.GAUGE, () -> transport.getCircuitBreaker().getState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+    }
+
+    /**
+     * Serve metrics for Prometheus on freestyle.metrics.port (disabled when 0), bound to
+     * freestyle.metrics.bind, which defaults to loopback only.
+     */
+    private PrometheusExporter startMetricsExporter(Properties config) {
+        int port = intProperty(config, "freestyle.metrics.port", 0);
+        if (port <= 0) {
+            return null;
+        }
+
+        String bind = config.getProperty("freestyle.metrics.bind", "127.0.0.1").trim();
+        PrometheusExporter exporter = new PrometheusExporter(metrics, new InetSocketAddress(bind, port), logger);
+        try {
+            exporter.start();
+            return exporter;
+        } catch (IOException e) {
+            logger.warn("Could not serve metrics on {}:{}: {}", bind, port, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, String> loadBaseVms(Properties config) {
+        Map<String, String> bases = new LinkedHashMap<>();
+        bases.put(DEFAULT_TEMPLATE, config.getProperty("freestyle.base.default", DEFAULT_BASE_VM));
+        for (String key : config.stringPropertyNames()) {
+            if (key.startsWith("freestyle.base.")) {
+                String template = key.substring("freestyle.base.".length()).toLowerCase(Locale.ROOT);
+                bases.put(template, config.getProperty(key).trim());
+            }
+        }
+        return bases;
+    }
+
+    private static int intProperty(Properties config, String key, int defaultValue) {
+        String value = config.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    private static Properties loadConfiguration(Logger logger) {
         Properties config = new Properties();
         
         String configPath = "freestyle-config.properties";
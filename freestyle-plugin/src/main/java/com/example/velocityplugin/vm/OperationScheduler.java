@@ -0,0 +1,232 @@
+package com.example.velocityplugin.vm;
+
+import com.example.velocityplugin.metrics.OperationMetrics;
+import com.example.velocityplugin.metrics.VmMetrics;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs VM operations in priority classes, so that a player waiting for a world
+ * to resume is never queued behind background suspends or reconciliation.
+ *
+ * Each class has its own concurrency limit and queue, and all classes share an
+ * overall limit. When a slot frees up, the highest class with queued work and
+ * room under its own limit goes first. An operation counts against the limits
+ * from when it starts until its future completes, so async API calls hold a
+ * slot without holding a thread.
+ *
+ * Operations are started on virtual threads when the JVM has them (Java 21+),
+ * otherwise on a small bounded pool. Queue waits and depths are recorded per
+ * class in {@link VmMetrics#schedulerQueue}.
+ */
+public class OperationScheduler implements AutoCloseable {
+
+    public enum Priority {
+        /** A player is waiting, e.g. a resume on connect or login. */
+        INTERACTIVE,
+        /** Someone asked for it, e.g. creating or forking a world. */
+        USER,
+        /** Nobody is waiting, e.g. idle suspends, reconciliation and pool upkeep. */
+        BACKGROUND;
+
+        public String getConfigName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+    private final int maxConcurrent;
+    private int running;
+
+    /**
+     * @param concurrency   how many operations of each class may run at once
+     * @param maxQueued     how many operations of each class may wait before new ones are rejected
+     * @param maxConcurrent how many operations may run at once across all classes
+     * @param threads       size of the pool used when virtual threads are off or unavailable
+     */
+    public OperationScheduler(Logger logger, VmMetrics metrics, Map<Priority, Integer> concurrency,
+                              Map<Priority, Integer> maxQueued, int maxConcurrent,
+                              boolean useVirtualThreads, int threads) {
+        this.logger = logger;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        for (Priority priority : Priority.values()) {
+            Lane lane = new Lane(metrics.schedulerQueue(priority.getConfigName()),
+                Math.max(1, concurrency.getOrDefault(priority, this.maxConcurrent)),
+                Math.max(0, maxQueued.getOrDefault(priority, Integer.MAX_VALUE)));
+            lanes.put(priority, lane);
+            metrics.register("freestyle_scheduler_running_" + priority.getConfigName(),
+                "VM operations of class " + priority.getConfigName() + " currently running",
+                VmMetrics.Kind.GAUGE, () -> lane.running);
+        }
+
+        ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformExecutor(threads);
+        if (useVirtualThreads && virtual == null) {
+            logger.info("Virtual threads need Java 21, running VM operations on {} platform threads", threads);
+        }
+    }
+
+    /**
+     * Queue an operation. The supplier is called once the operation's class and the
+     * scheduler as a whole have room; the returned future completes with the
+     * operation's future. Fails with a RejectedExecutionException if the class's
+     * queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<CompletableFuture<T>> operation) {
+        Lane lane = lanes.get(priority);
+        Task<T> task = new Task<>(lane, operation);
+        synchronized (this) {
+            if (lane.queue.size() >= lane.maxQueued) {
+                lane.metrics.recordOutcome("rejected");
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Too many queued " + priority.getConfigName() + " VM operations"));
+            }
+            task.queuedAt = lane.metrics.begin();
+            lane.queue.add(task);
+        }
+        dispatch();
+        return task.result;
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public synchronized int getQueued(Priority priority) {
+        return lanes.get(priority).queue.size();
+    }
+
+    public synchronized int getRunning(Priority priority) {
+        return lanes.get(priority).running;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Start as many queued operations as the limits allow, highest class first.
+     */
+    private void dispatch() {
+        while (true) {
+            Task<?> next = null;
+            synchronized (this) {
+                if (running < maxConcurrent) {
+                    for (Lane lane : lanes.values()) {
+                        if (lane.running < lane.limit && !lane.queue.isEmpty()) {
+                            next = lane.queue.poll();
+                            lane.running++;
+                            running++;
+                            lane.metrics.end(next.queuedAt, "dispatched");
+                            break;
+                        }
+                    }
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            start(next);
+        }
+    }
+
+    private <T> void start(Task<T> task) {
+        try {
+            executor.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            finish(task.lane);
+            task.result.completeExceptionally(e);
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        CompletableFuture<T> future;
+        try {
+            future = task.operation.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, error) -> {
+            finish(task.lane);
+            if (error != null) {
+                task.result.completeExceptionally(error);
+            } else {
+                task.result.complete(value);
+            }
+        });
+    }
+
+    private void finish(Lane lane) {
+        synchronized (this) {
+            lane.running--;
+            running--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor(), looked up at runtime so the plugin
+     * still builds for and runs on Java 17.
+     */
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Virtual threads are not available: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "freestyle-vm-operation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class Lane {
+        private final OperationMetrics metrics;
+        private final int limit;
+        private final int maxQueued;
+        private final Queue<Task<?>> queue = new ArrayDeque<>();
+        private volatile int running;
+
+        private Lane(OperationMetrics metrics, int limit, int maxQueued) {
+            this.metrics = metrics;
+            this.limit = limit;
+            this.maxQueued = maxQueued;
+        }
+    }
+
+    private static final class Task<T> {
+        private final Lane lane;
+        private final Supplier<CompletableFuture<T>> operation;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private long queuedAt;
+
+        private Task(Lane lane, Supplier<CompletableFuture<T>> operation) {
+            this.lane = lane;
+            this.operation = operation;
+        }
+    }
+}
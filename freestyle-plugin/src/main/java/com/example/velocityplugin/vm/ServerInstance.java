@@ -7,7 +7,7 @@ import java.time.Instant;
 public class ServerInstance {
     private final String id;
     private final String name;
-    private final InetSocketAddress address; // where the server can be reached
+    private final InetSocketAddress address; // where the server can be reached, null while the VM has no domain
     private final Instant createdAt;
     private volatile State state = State.RUNNING;
 
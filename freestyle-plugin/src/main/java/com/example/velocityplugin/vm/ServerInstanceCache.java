@@ -0,0 +1,116 @@
+package com.example.velocityplugin.vm;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded TTL cache of VM lookups keyed by VM id.
+ *
+ * Concurrent misses for the same id share a single in-flight load. Only
+ * successful lookups are cached, and a load that started before its id
+ * was invalidated never writes its (possibly stale) result back. Loads of
+ * other ids are unaffected.
+ */
+public class ServerInstanceCache {
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<Optional<ServerInstance>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ServerInstanceCache(Duration ttl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the cached instance for an id, or load it. Callers that miss while a load
+     * for the same id is running join that load instead of starting another.
+     */
+    public CompletableFuture<Optional<ServerInstance>> get(String id, Function<String, CompletableFuture<Optional<ServerInstance>>> loader) {
+        if (ttlNanos > 0) {
+            synchronized (entries) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                        hits.incrementAndGet();
+                        return CompletableFuture.completedFuture(Optional.of(entry.instance));
+                    }
+                    entries.remove(id);
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<Optional<ServerInstance>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<ServerInstance>> existing = inFlight.putIfAbsent(id, load);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<Optional<ServerInstance>> loaded;
+        try {
+            loaded = loader.apply(id);
+        } catch (RuntimeException e) {
+            // Fail the callers who joined meanwhile too, rather than leave them waiting
+            inFlight.remove(id, load);
+            load.completeExceptionally(e);
+            return load;
+        }
+        loaded.whenComplete((result, error) -> {
+            if (error != null) {
+                inFlight.remove(id, load);
+                load.completeExceptionally(error);
+                return;
+            }
+            synchronized (entries) {
+                // Still the in-flight load for this id only if no invalidate detached it
+                if (inFlight.remove(id, load) && result.isPresent() && ttlNanos > 0) {
+                    entries.put(id, new Entry(result.get(), System.nanoTime()));
+                }
+            }
+            load.complete(result);
+        });
+        return load;
+    }
+
+    /**
+     * Drop an id so the next lookup goes to the API. Also detaches any in-flight load.
+     */
+    public void invalidate(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+            inFlight.remove(id);
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+        private final ServerInstance instance;
+        private final long loadedAt;
+
+        private Entry(ServerInstance instance, long loadedAt) {
+            this.instance = instance;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
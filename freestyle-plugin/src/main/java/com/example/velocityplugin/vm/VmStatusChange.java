@@ -0,0 +1,73 @@
+package com.example.velocityplugin.vm;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/** A VM reaching a new state, as pushed by the {@link VmStatusFeed}. */
+public class VmStatusChange {
+    private final String id;
+    private final String name;
+    private final Kind kind;
+    private final String reason;
+    private final Instant at;
+
+    public enum Kind {
+        /** The VM is running, e.g. after a fork or resume. */
+        READY,
+        SUSPENDED,
+        STOPPED,
+        /** The VM crashed or could not be started; see {@link #getReason()}. */
+        FAILED,
+        DELETED
+    }
+
+    public VmStatusChange(String id, String name, Kind kind, String reason, Instant at) {
+        this.id = id;
+        this.name = name;
+        this.kind = kind;
+        this.reason = reason;
+        this.at = at;
+    }
+
+    public String getId() { return id; }
+
+    /** The VM's name, or null if the API did not send it. */
+    public String getName() { return name; }
+    public Kind getKind() { return kind; }
+
+    /** Why the VM failed, or null. */
+    public String getReason() { return reason; }
+    public Instant getAt() { return at; }
+
+    /**
+     * Map the API's state string onto a kind. States a VM only passes through
+     * (starting, suspending, ...) and ones we do not know map to null and are not reported.
+     */
+    static Kind toKind(String state) {
+        if (state == null) {
+            return null;
+        }
+        switch (state.toLowerCase(Locale.ROOT)) {
+            case "running":
+                return Kind.READY;
+            case "suspended":
+                return Kind.SUSPENDED;
+            case "stopped":
+            case "shutdown":
+                return Kind.STOPPED;
+            case "failed":
+            case "error":
+            case "crashed":
+                return Kind.FAILED;
+            case "deleted":
+                return Kind.DELETED;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return id + " " + kind + (reason != null ? " (" + reason + ")" : "");
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.velocityplugin.vm;
+
+import com.example.velocityplugin.vm.api.VmEventResponse;
+import com.example.velocityplugin.vm.api.VmEventsResponse;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes VM state changes to listeners, so callers can react to a VM becoming
+ * ready, being suspended or failing without polling
+ * {@link FreestyleVMManager#getServerAsync(String)}.
+ *
+ * The feed keeps a single long-poll request open against GET /v1/vms/events,
+ * asking for the changes after the last cursor it saw. The API answers as soon
+ * as there are any, or with none once the wait is up, and the feed asks again.
+ * However many listeners and waiters there are, there is only one request.
+ *
+ * Every change drops the VM from the lookup cache. Listeners are called in
+ * order on the feed's own thread and should not block.
+ *
+ * A failed request is retried with exponential backoff from the same cursor.
+ * While the feed is disconnected, waiters are told so they can fall back to
+ * polling. If the API has no event stream at all, the feed stops.
+ */
+public class VmStatusFeed implements AutoCloseable {
+
+    public interface Listener {
+        void onStatusChange(VmStatusChange change);
+    }
+
+    private static final long MIN_BACKOFF_MILLIS = 500;
+
+    private final FreestyleVMManager vmManager;
+    private final Logger logger;
+    private final Duration wait;
+    private final long maxBackoffMillis;
+    private final ExecutorService dispatcher;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, List<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile String cursor;
+    private int failures; // only touched on the dispatcher thread
+
+    /**
+     * @param wait       how long each long-poll request may be held open by the API
+     * @param maxBackoff the longest pause between attempts while the API is failing
+     */
+    VmStatusFeed(FreestyleVMManager vmManager, Logger logger, Duration wait, Duration maxBackoff) {
+        this.vmManager = vmManager;
+        this.logger = logger;
+        this.wait = wait;
+        this.maxBackoffMillis = Math.max(MIN_BACKOFF_MILLIS, maxBackoff.toMillis());
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "freestyle-vm-status-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        running = true;
+        dispatcher.execute(this::poll);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Whether the feed is currently receiving changes. While it is not, changes are
+     * only noticed by polling.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Wait for a VM to reach a state. Completes with the next change for the VM that
+     * is of the given kind, FAILED or DELETED, so call it before starting the
+     * operation to make sure the change cannot slip past.
+     *
+     * Completes empty instead if the feed is not connected, loses its connection or
+     * nothing arrives within the timeout, so callers can fall back to polling.
+     * Never completes exceptionally.
+     */
+    public CompletableFuture<Optional<VmStatusChange>> awaitStatus(String id, VmStatusChange.Kind kind, Duration timeout) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        Waiter waiter = new Waiter(kind);
+        waiters.compute(id, (key, list) -> {
+            List<Waiter> added = list == null ? new ArrayList<>() : list;
+            added.add(waiter);
+            return added;
+        });
+        waiter.future.completeOnTimeout(Optional.empty(), timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((change, e) -> waiters.computeIfPresent(id, (key, list) -> {
+                list.remove(waiter);
+                return list.isEmpty() ? null : list;
+            }));
+        // The feed may have dropped its waiters between the check above and registering
+        if (!connected) {
+            waiter.future.complete(Optional.empty());
+        }
+        return waiter.future;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        disconnect();
+        dispatcher.shutdownNow();
+    }
+
+    private void poll() {
+        if (!running) {
+            return;
+        }
+        vmManager.pollEventsAsync(cursor, wait).whenCompleteAsync((response, e) -> {
+            if (!running) {
+                return;
+            }
+            if (e != null) {
+                onFailure(unwrap(e));
+                return;
+            }
+
+            failures = 0;
+            if (!connected) {
+                connected = true;
+                logger.info("VM status feed connected");
+            }
+            for (VmEventResponse event : response.getEvents()) {
+                VmStatusChange.Kind kind = VmStatusChange.toKind(event.getState());
+                if (kind == null || event.getId() == null) {
+                    logger.debug("Ignoring VM event {} {}", event.getId(), event.getState());
+                    continue;
+                }
+                Instant at = event.getAt() > 0 ? Instant.ofEpochMilli(event.getAt()) : Instant.now();
+                dispatch(new VmStatusChange(event.getId(), event.getName(), kind, event.getReason(), at));
+            }
+            if (response.getCursor() != null) {
+                cursor = response.getCursor();
+            }
+            poll();
+        }, dispatcher);
+    }
+
+    private void onFailure(Throwable e) {
+        if (e instanceof UnsupportedOperationException) {
+            logger.warn("{}; VM state changes will only be noticed by polling", e.getMessage());
+            running = false;
+            disconnect();
+            return;
+        }
+
+        failures++;
+        long delay = Math.min(maxBackoffMillis, MIN_BACKOFF_MILLIS << Math.min(failures - 1, 16));
+        if (connected || failures == 1) {
+            logger.warn("VM status feed disconnected, retrying in {}ms: {}", delay, e.getMessage());
+        }
+        disconnect();
+        CompletableFuture.runAsync(this::poll, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, dispatcher));
+    }
+
+    private void dispatch(VmStatusChange change) {
+        received.incrementAndGet();
+        vmManager.invalidateServer(change.getId());
+
+        List<Waiter> matched = new ArrayList<>();
+        waiters.computeIfPresent(change.getId(), (key, list) -> {
+            for (Iterator<Waiter> it = list.iterator(); it.hasNext(); ) {
+                Waiter waiter = it.next();
+                if (waiter.matches(change.getKind())) {
+                    matched.add(waiter);
+                    it.remove();
+                }
+            }
+            return list.isEmpty() ? null : list;
+        });
+        matched.forEach(waiter -> waiter.future.complete(Optional.of(change)));
+
+        for (Listener listener : listeners) {
+            try {
+                listener.onStatusChange(change);
+            } catch (RuntimeException e) {
+                logger.warn("VM status listener failed on {}: {}", change, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tell everyone waiting that no change is coming through the feed for now.
+     */
+    private void disconnect() {
+        connected = false;
+        for (String id : new ArrayList<>(waiters.keySet())) {
+            List<Waiter> dropped = waiters.remove(id);
+            if (dropped != null) {
+                dropped.forEach(waiter -> waiter.future.complete(Optional.empty()));
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private static final class Waiter {
+        private final VmStatusChange.Kind kind;
+        private final CompletableFuture<Optional<VmStatusChange>> future = new CompletableFuture<>();
+
+        private Waiter(VmStatusChange.Kind kind) {
+            this.kind = kind;
+        }
+
+        private boolean matches(VmStatusChange.Kind change) {
+            return change == kind || change == VmStatusChange.Kind.FAILED || change == VmStatusChange.Kind.DELETED;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.velocityplugin.vm;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a small stock of pre-forked VMs per base snapshot so that creating a
+ * server only has to hand out a VM that is already running.
+ *
+ * The pool refills in the background whenever a base falls to the low
+ * watermark, forking until it is back at the high watermark. VMs that sit in
+ * the pool longer than the max idle age are deleted and replaced, and the VMs
+ * still in the pool when it shuts down are deleted, so that a restart does not
+ * leave them running unseen.
+ */
+public class WarmPool {
+    private final FreestyleVMManager vmManager;
+    private final Logger logger;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final Duration maxIdleAge;
+    private final Map<String, Deque<PooledInstance>> ready = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicInteger forkCounter = new AtomicInteger();
+    private final ScheduledExecutorService maintenanceExecutor;
+    private volatile boolean stopped;
+
+    public WarmPool(FreestyleVMManager vmManager, Logger logger, int lowWatermark, int highWatermark, Duration maxIdleAge) {
+        if (lowWatermark < 0 || highWatermark < lowWatermark) {
+            throw new IllegalArgumentException("Invalid pool watermarks: low=" + lowWatermark + " high=" + highWatermark);
+        }
+        this.vmManager = vmManager;
+        this.logger = logger;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.maxIdleAge = maxIdleAge;
+        this.maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "freestyle-warm-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start keeping the given base snapshots warm and schedule periodic maintenance.
+     */
+    public void start(Collection<String> baseIds, Duration maintenanceInterval) {
+        if (!isEnabled()) {
+            logger.info("Warm pool disabled (freestyle.pool.high=0)");
+            return;
+        }
+
+        for (String baseId : baseIds) {
+            ready.computeIfAbsent(baseId, id -> new ConcurrentLinkedDeque<>());
+        }
+        // The first refill runs on the pool's own thread rather than the caller's
+        maintenanceExecutor.execute(() -> baseIds.forEach(this::refill));
+
+        long intervalMillis = maintenanceInterval.toMillis();
+        maintenanceExecutor.scheduleWithFixedDelay(this::maintain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Warm pool started for bases {} (low={}, high={}, maxIdle={}s)",
+            baseIds, lowWatermark, highWatermark, maxIdleAge.getSeconds());
+    }
+
+    public boolean isEnabled() {
+        return highWatermark > 0;
+    }
+
+    /**
+     * Take a ready VM forked from the given base, if one is available.
+     * A miss means the caller has to fork synchronously.
+     */
+    public Optional<ServerInstance> take(String baseId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+
+        Deque<PooledInstance> queue = ready.computeIfAbsent(baseId, id -> new ConcurrentLinkedDeque<>());
+        PooledInstance pooled;
+        while ((pooled = queue.pollFirst()) != null) {
+            if (pooled.isExpired(maxIdleAge)) {
+                retire(pooled);
+                continue;
+            }
+            hits.incrementAndGet();
+            refill(baseId);
+            return Optional.of(pooled.instance);
+        }
+
+        misses.incrementAndGet();
+        refill(baseId);
+        return Optional.empty();
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getExpired() { return expired.get(); }
+
+    /**
+     * Number of ready VMs currently pooled for a base.
+     */
+    public int getReadyCount(String baseId) {
+        Deque<PooledInstance> queue = ready.get(baseId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Whether a VM id is currently sitting in the pool.
+     */
+    public boolean isPooled(String vmId) {
+        return ready.values().stream()
+            .flatMap(Deque::stream)
+            .anyMatch(pooled -> pooled.instance.getId().equals(vmId));
+    }
+
+    /**
+     * Stop refilling and delete the VMs still in the pool, waiting up to timeout for
+     * the deletes. Forks that finish later are deleted as they come in.
+     */
+    public void shutdown(Duration timeout) {
+        stopped = true;
+        maintenanceExecutor.shutdownNow();
+
+        List<CompletableFuture<Void>> deletes = new ArrayList<>();
+        for (Deque<PooledInstance> queue : ready.values()) {
+            PooledInstance pooled;
+            while ((pooled = queue.pollFirst()) != null) {
+                deletes.add(delete(pooled.instance));
+            }
+        }
+        if (deletes.isEmpty()) {
+            return;
+        }
+        logger.info("Deleting {} pooled VMs", deletes.size());
+        try {
+            CompletableFuture.allOf(deletes.toArray(new CompletableFuture<?>[0])).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Pooled VMs were not all deleted within {}s", timeout.getSeconds());
+        } catch (ExecutionException e) {
+            // Each failure has been logged
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("WarmPool{hits=").append(hits.get())
+            .append(", misses=").append(misses.get())
+            .append(", expired=").append(expired.get());
+        ready.forEach((baseId, queue) -> sb.append(", ").append(baseId).append('=').append(queue.size()));
+        return sb.append('}').toString();
+    }
+
+    private void maintain() {
+        for (Map.Entry<String, Deque<PooledInstance>> entry : ready.entrySet()) {
+            entry.getValue().removeIf(pooled -> {
+                if (pooled.isExpired(maxIdleAge)) {
+                    retire(pooled);
+                    return true;
+                }
+                return false;
+            });
+            refill(entry.getKey());
+        }
+    }
+
+    /**
+     * Fork up to the high watermark once a base is at or below the low watermark.
+     */
+    private void refill(String baseId) {
+        if (stopped) {
+            return;
+        }
+        Deque<PooledInstance> queue = ready.computeIfAbsent(baseId, id -> new ConcurrentLinkedDeque<>());
+        AtomicInteger inFlight = pending.computeIfAbsent(baseId, id -> new AtomicInteger());
+
+        synchronized (inFlight) {
+            int stocked = queue.size() + inFlight.get();
+            if (stocked > lowWatermark) {
+                return;
+            }
+            for (int i = stocked; i < highWatermark; i++) {
+                inFlight.incrementAndGet();
+                forkInto(baseId, queue, inFlight);
+            }
+        }
+    }
+
+    private void forkInto(String baseId, Deque<PooledInstance> queue, AtomicInteger inFlight) {
+        String poolName = "pool-" + baseId + "-" + forkCounter.incrementAndGet();
+        vmManager.getScheduler().submit(OperationScheduler.Priority.BACKGROUND,
+                () -> vmManager.forkServerAsync(baseId, poolName)).whenComplete((instance, error) -> {
+            if (error == null && stopped) {
+                delete(instance);
+            } else if (error == null) {
+                queue.addLast(new PooledInstance(instance));
+                logger.debug("Warm pool forked {} from {}", instance.getId(), baseId);
+            } else {
+                logger.warn("Warm pool failed to fork from {}: {}", baseId, error.getMessage());
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private void retire(PooledInstance pooled) {
+        expired.incrementAndGet();
+        vmManager.getScheduler().submit(OperationScheduler.Priority.BACKGROUND,
+                () -> vmManager.deleteServerAsync(pooled.instance.getId())).exceptionally(error -> {
+            logger.warn("Failed to retire pooled VM {}: {}", pooled.instance.getId(), error.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Delete a pooled VM directly rather than through the scheduler, which is closed
+     * right after the pool at shutdown.
+     */
+    private CompletableFuture<Void> delete(ServerInstance instance) {
+        return vmManager.deleteServerAsync(instance.getId()).exceptionally(error -> {
+            logger.warn("Failed to delete pooled VM {}: {}", instance.getId(), error.getMessage());
+            return null;
+        });
+    }
+
+    private static final class PooledInstance {
+        private final ServerInstance instance;
+        private final Instant pooledAt = Instant.now();
+
+        private PooledInstance(ServerInstance instance) {
+            this.instance = instance;
+        }
+
+        private boolean isExpired(Duration maxIdleAge) {
+            return Duration.between(pooledAt, Instant.now()).compareTo(maxIdleAge) > 0;
+        }
+    }
+}
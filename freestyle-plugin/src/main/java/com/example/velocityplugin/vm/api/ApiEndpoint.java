@@ -0,0 +1,48 @@
+package com.example.velocityplugin.vm.api;
+
+/**
+ * Freestyle API endpoints, each with its own rate limit. Idempotent endpoints
+ * are retried on transient failures; non-idempotent ones only when the
+ * request cannot have been processed.
+ *
+ * The events long-poll is left out of the circuit breaker: it sits open until
+ * the API has something to report, so its timeouts and disconnects say little
+ * about the API's health, and it must not be cut off when other calls fail.
+ */
+public enum ApiEndpoint {
+    GET("get", true, true),
+    FORK("fork", false, true),
+    SHUTDOWN("shutdown", true, true),
+    START("start", true, true),
+    DELETE("delete", true, true),
+    LIST("list", true, true),
+    EVENTS("events", true, false);
+
+    private final String configName;
+    private final boolean idempotent;
+    private final boolean breakerGuarded;
+
+    ApiEndpoint(String configName, boolean idempotent, boolean breakerGuarded) {
+        this.configName = configName;
+        this.idempotent = idempotent;
+        this.breakerGuarded = breakerGuarded;
+    }
+
+    /**
+     * Name used in freestyle.ratelimit.&lt;name&gt;.* settings.
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * Whether calls are refused while the circuit breaker is open and count towards opening it.
+     */
+    public boolean isBreakerGuarded() {
+        return breakerGuarded;
+    }
+}
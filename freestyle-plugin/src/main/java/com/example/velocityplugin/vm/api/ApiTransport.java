@@ -0,0 +1,179 @@
+package com.example.velocityplugin.vm.api;
+
+import com.example.velocityplugin.metrics.OperationMetrics;
+import com.example.velocityplugin.metrics.VmMetrics;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends every Freestyle API request. Requests are rate limited per endpoint,
+ * transient failures are retried with jittered exponential backoff, and a
+ * circuit breaker fails callers fast while the API keeps failing. Endpoints
+ * that opt out of the breaker, like the events long-poll, neither trip it
+ * nor are refused by it.
+ *
+ * Waiting for a token or a retry never blocks a thread; the next attempt is
+ * scheduled on the given executor.
+ *
+ * Every attempt is timed and counted by status code in {@link VmMetrics}; calls
+ * turned away locally are counted as rate_limited or circuit_open.
+ */
+public class ApiTransport {
+    private final HttpClient http;
+    private final Executor executor;
+    private final Logger logger;
+    private final VmMetrics metrics;
+    private final Map<ApiEndpoint, TokenBucket> rateLimits;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxQueueNanos;
+
+    public ApiTransport(HttpClient http, Executor executor, Logger logger, VmMetrics metrics,
+                        Map<ApiEndpoint, TokenBucket> rateLimits,
+                        CircuitBreaker circuitBreaker, int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                        long maxQueueMillis) {
+        this.http = http;
+        this.executor = executor;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.rateLimits = new EnumMap<>(rateLimits);
+        this.circuitBreaker = circuitBreaker;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMillis);
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> send(ApiEndpoint endpoint, HttpRequest request,
+                                                       HttpResponse.BodyHandler<T> handler) {
+        return attempt(endpoint, request, handler, 1);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> attempt(ApiEndpoint endpoint, HttpRequest request,
+                                                          HttpResponse.BodyHandler<T> handler, int attempt) {
+        TokenBucket bucket = rateLimits.get(endpoint);
+        long waitNanos = bucket == null ? 0 : bucket.tryReserve(maxQueueNanos);
+        if (waitNanos < 0) {
+            metrics.apiRequest(endpoint.getConfigName()).recordOutcome("rate_limited");
+            return CompletableFuture.failedFuture(new ApiUnavailableException(
+                "Too many queued " + endpoint.getConfigName() + " requests to the Freestyle API"));
+        }
+        if (waitNanos == 0) {
+            return dispatch(endpoint, request, handler, attempt);
+        }
+
+        Executor delayed = CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, executor);
+        return CompletableFuture.runAsync(() -> { }, delayed)
+            .thenCompose(ignored -> dispatch(endpoint, request, handler, attempt));
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> dispatch(ApiEndpoint endpoint, HttpRequest request,
+                                                           HttpResponse.BodyHandler<T> handler, int attempt) {
+        OperationMetrics requestMetrics = metrics.apiRequest(endpoint.getConfigName());
+        boolean guarded = endpoint.isBreakerGuarded();
+        if (guarded && !circuitBreaker.allowRequest()) {
+            requestMetrics.recordOutcome("circuit_open");
+            return CompletableFuture.failedFuture(new ApiUnavailableException(
+                "Freestyle API circuit breaker is open, failing fast"));
+        }
+
+        long start = requestMetrics.begin();
+        return http.sendAsync(request, handler).handle((response, error) -> {
+            Throwable cause = unwrap(error);
+            requestMetrics.end(start, cause != null ? "io_error" : Integer.toString(response.statusCode()));
+            boolean serverFailure = cause != null || response.statusCode() >= 500;
+            if (guarded && serverFailure) {
+                circuitBreaker.recordFailure();
+            } else if (guarded) {
+                circuitBreaker.recordSuccess();
+            }
+
+            if (attempt < maxAttempts && isRetryable(endpoint, response, cause)) {
+                long delay = backoffMillis(attempt, response);
+                discard(response);
+                logger.debug("Retrying {} {} in {}ms (attempt {} of {})",
+                    request.method(), request.uri(), delay, attempt + 1, maxAttempts);
+                Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor);
+                return CompletableFuture.runAsync(() -> { }, delayed)
+                    .thenCompose(ignored -> attempt(endpoint, request, handler, attempt + 1));
+            }
+
+            return cause != null
+                ? CompletableFuture.<HttpResponse<T>>failedFuture(cause)
+                : CompletableFuture.completedFuture(response);
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * Idempotent calls are retried on I/O errors, 429 and 502-504. A non-idempotent
+     * call (fork) is only retried when the API cannot have acted on it.
+     */
+    private static boolean isRetryable(ApiEndpoint endpoint, HttpResponse<?> response, Throwable cause) {
+        if (cause != null) {
+            return endpoint.isIdempotent() ? cause instanceof IOException : cause instanceof ConnectException;
+        }
+        int status = response.statusCode();
+        if (status == 429) {
+            return true;
+        }
+        return endpoint.isIdempotent() && (status == 502 || status == 503 || status == 504);
+    }
+
+    /**
+     * Full-jitter exponential backoff, honouring a Retry-After header in seconds when present.
+     */
+    private long backoffMillis(int attempt, HttpResponse<?> response) {
+        if (response != null) {
+            String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+            if (retryAfter != null) {
+                try {
+                    return Math.min(maxDelayMillis, Long.parseLong(retryAfter.trim()) * 1000);
+                } catch (NumberFormatException e) {
+                    // HTTP-date form, fall back to backoff
+                }
+            }
+        }
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Close a response that will not be handed to the caller, so a streamed body
+     * gives its connection back.
+     */
+    private void discard(HttpResponse<?> response) {
+        if (response != null && response.body() instanceof InputStream) {
+            try {
+                ((InputStream) response.body()).close();
+            } catch (IOException e) {
+                logger.debug("Failed to close discarded response body: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
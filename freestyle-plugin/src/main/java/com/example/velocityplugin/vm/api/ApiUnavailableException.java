@@ -0,0 +1,11 @@
+package com.example.velocityplugin.vm.api;
+
+/**
+ * Thrown when a call is rejected without reaching the Freestyle API, either
+ * because the circuit breaker is open or the rate limit queue is full.
+ */
+public class ApiUnavailableException extends RuntimeException {
+    public ApiUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.velocityplugin.vm.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Body of POST /v1/vms/{id}/fork.
+ */
+public class ForkRequest {
+    private final String name;
+
+    public ForkRequest(String name) {
+        this.name = name;
+    }
+
+    @JsonProperty("name")
+    public String getName() { return name; }
+}
@@ -0,0 +1,48 @@
+package com.example.velocityplugin.vm.api;
+
+/**
+ * Token bucket rate limiter that hands out reservations instead of blocking.
+ * A caller that finds the bucket empty is told how long to wait before its
+ * request may go out, so bursts are smoothed without parking threads.
+ */
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param perSecond sustained request rate; zero or less disables limiting
+     * @param burst     how many requests may go out back to back
+     */
+    public TokenBucket(double perSecond, int burst) {
+        this.tokensPerNano = perSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Take a token if the caller would wait at most maxWaitNanos for it, returning how
+     * many nanoseconds to wait before using it, or -1 without taking one otherwise.
+     * Turning callers away must not take tokens, or the bucket would stay in debt
+     * long after an overload ends.
+     */
+    public synchronized long tryReserve(long maxWaitNanos) {
+        if (tokensPerNano <= 0) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+
+        double remaining = tokens - 1;
+        long waitNanos = remaining >= 0 ? 0 : (long) Math.ceil(-remaining / tokensPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens = remaining;
+        return waitNanos;
+    }
+}
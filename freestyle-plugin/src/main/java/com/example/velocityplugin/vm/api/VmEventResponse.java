@@ -0,0 +1,49 @@
+package com.example.velocityplugin.vm.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A VM state change as returned by GET /v1/vms/events.
+ * Unknown fields are ignored so API additions don't break decoding.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VmEventResponse {
+    private final String id;
+    private final String name;
+    private final String state;
+    private final String reason;
+    private final long at;
+
+    @JsonCreator
+    public VmEventResponse(@JsonProperty("id") String id,
+                           @JsonProperty("name") String name,
+                           @JsonProperty("state") String state,
+                           @JsonProperty("reason") String reason,
+                           @JsonProperty("at") long at) {
+        this.id = id;
+        this.name = name;
+        this.state = state;
+        this.reason = reason;
+        this.at = at;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+
+    /**
+     * The state the VM moved to (e.g. "running", "suspended", "failed", "deleted").
+     */
+    public String getState() { return state; }
+
+    /**
+     * Why the VM failed, or null.
+     */
+    public String getReason() { return reason; }
+
+    /**
+     * When the change happened, in epoch millis, or 0 if not reported.
+     */
+    public long getAt() { return at; }
+}
@@ -0,0 +1,29 @@
+package com.example.velocityplugin.vm.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * VM state changes after a cursor, as returned by GET /v1/vms/events?after=&lt;cursor&gt;.
+ * The cursor to pass on the next request comes with them.
+ * Unknown fields are ignored so API additions don't break decoding.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VmEventsResponse {
+    private final List<VmEventResponse> events;
+    private final String cursor;
+
+    @JsonCreator
+    public VmEventsResponse(@JsonProperty("events") List<VmEventResponse> events,
+                            @JsonProperty("cursor") String cursor) {
+        this.events = events == null ? Collections.emptyList() : events;
+        this.cursor = cursor;
+    }
+
+    public List<VmEventResponse> getEvents() { return events; }
+    public String getCursor() { return cursor; }
+}
@@ -0,0 +1,24 @@
+package com.example.velocityplugin.vm.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The VMs on the account, as returned by GET /v1/vms.
+ * Unknown fields are ignored so API additions don't break decoding.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VmListResponse {
+    private final List<VmResponse> vms;
+
+    @JsonCreator
+    public VmListResponse(@JsonProperty("vms") List<VmResponse> vms) {
+        this.vms = vms == null ? Collections.emptyList() : vms;
+    }
+
+    public List<VmResponse> getVms() { return vms; }
+}
@@ -0,0 +1,40 @@
+package com.example.velocityplugin.vm.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A VM as returned by the Freestyle API (GET /v1/vms/{id} and fork responses).
+ * Unknown fields are ignored so API additions don't break decoding.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VmResponse {
+    private final String id;
+    private final String name;
+    private final List<String> domains;
+    private final String state;
+
+    @JsonCreator
+    public VmResponse(@JsonProperty("id") String id,
+                      @JsonProperty("name") String name,
+                      @JsonProperty("domains") List<String> domains,
+                      @JsonProperty("state") String state) {
+        this.id = id;
+        this.name = name;
+        this.domains = domains == null ? Collections.emptyList() : domains;
+        this.state = state;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public List<String> getDomains() { return domains; }
+
+    /**
+     * Lifecycle state reported by the API (e.g. "running", "suspended"), or null if absent.
+     */
+    public String getState() { return state; }
+}